@@ -0,0 +1,105 @@
+package com.vessel.Kernel;
+
+import com.vessel.model.NotebookCell;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Handle for a Run All / Run Below batch queued with NotebookEngine.submitBatch().
+ *
+ * The engine runs the batch's CODE cells in order under one execution-lock acquisition.
+ * Listeners are called on the engine's queue thread (hop to the FX thread yourself).
+ * Pausing takes effect between cells; the cell that is running finishes first.
+ */
+public class BatchExecution {
+
+    private final List<NotebookCell> cells;
+    private final boolean stopOnFailure;
+    private final Consumer<NotebookCell> onCellStarted;
+    private final BiConsumer<NotebookCell, ExecutionResult> onCellFinished;
+    private final CompletableFuture<List<ExecutionResult>> future = new CompletableFuture<>();
+
+    // === Pause / Resume ===
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private final Condition resumed = pauseLock.newCondition();
+    private boolean paused = false;
+
+    public BatchExecution(List<NotebookCell> cells, boolean stopOnFailure,
+                          Consumer<NotebookCell> onCellStarted,
+                          BiConsumer<NotebookCell, ExecutionResult> onCellFinished) {
+        this.cells = List.copyOf(cells);
+        this.stopOnFailure = stopOnFailure;
+        this.onCellStarted = onCellStarted != null ? onCellStarted : cell -> {};
+        this.onCellFinished = onCellFinished != null ? onCellFinished : (cell, result) -> {};
+    }
+
+    public List<NotebookCell> getCells() { return cells; }
+    public boolean isStopOnFailure() { return stopOnFailure; }
+
+    // Completes with the results of the cells that actually ran, in order
+    public CompletableFuture<List<ExecutionResult>> getFuture() { return future; }
+
+    public void pause() {
+        pauseLock.lock();
+        try {
+            paused = true;
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    public void resume() {
+        pauseLock.lock();
+        try {
+            paused = false;
+            resumed.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    public boolean isPaused() {
+        pauseLock.lock();
+        try {
+            return paused;
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    // Stops the batch: queued -> never runs, running -> current cell is stopped and the rest skipped
+    public void cancel() {
+        future.cancel(true);
+        resume(); // wake the queue thread if it is parked on a pause
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    // === Engine side ===
+
+    void awaitIfPaused() throws InterruptedException {
+        pauseLock.lock();
+        try {
+            while (paused && !future.isDone()) {
+                resumed.await();
+            }
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    void cellStarted(NotebookCell cell) {
+        onCellStarted.accept(cell);
+    }
+
+    void cellFinished(NotebookCell cell, ExecutionResult result) {
+        onCellFinished.accept(cell, result);
+    }
+}
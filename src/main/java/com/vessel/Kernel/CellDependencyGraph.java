@@ -0,0 +1,146 @@
+package com.vessel.Kernel;
+
+import com.vessel.model.NotebookCell;
+import jdk.jshell.DeclarationSnippet;
+import jdk.jshell.Snippet;
+import jdk.jshell.SnippetEvent;
+import jdk.jshell.SourceCodeAnalysis;
+
+import java.util.*;
+
+/**
+ * Tracks which JShell names each cell defines and which names it uses, so "Run Stale"
+ * only re-executes cells downstream of an edit instead of the whole notebook.
+ *
+ * Definitions come from the SnippetEvents of the cell's last run. Uses come from the
+ * identifiers in the cell's source, plus JShell's own SourceCodeAnalysis.dependents()
+ * for declaration-to-declaration links.
+ */
+public class CellDependencyGraph {
+
+    // What we know about a cell from its last execution
+    private static final class CellInfo {
+        String executedCode;
+        boolean succeeded;
+        Set<String> defines = new HashSet<>();
+        Set<String> references = new HashSet<>();
+    }
+
+    private final Map<String, CellInfo> cells = new HashMap<>();
+    private final Map<String, String> snippetOwners = new HashMap<>(); // snippet id -> cell id
+
+    // Called after a cell ran, with every event its snippets produced
+    public synchronized void recordExecution(String cellId, String code, boolean succeeded,
+                                             List<SnippetEvent> events, SourceCodeAnalysis analysis) {
+        if (cellId == null) return;
+
+        CellInfo info = new CellInfo();
+        info.executedCode = code;
+        info.succeeded = succeeded;
+        info.references.addAll(referencedIdentifiers(code));
+
+        List<DeclarationSnippet> declared = new ArrayList<>();
+        for (SnippetEvent event : events) {
+            // causeSnippet != null -> side effect on some older snippet (e.g. OVERWRITTEN)
+            if (event.causeSnippet() != null) continue;
+            if (!event.status().isDefined()) continue;
+
+            if (event.snippet() instanceof DeclarationSnippet declaration) {
+                info.defines.add(declaration.name());
+                snippetOwners.put(declaration.id(), cellId);
+                declared.add(declaration);
+            }
+        }
+        cells.put(cellId, info);
+
+        // JShell knows declaration dependencies exactly (e.g. a method body using a var),
+        // so record them as references on the dependent's cell too
+        if (analysis != null) {
+            for (DeclarationSnippet declaration : declared) {
+                for (Snippet dependent : analysis.dependents(declaration)) {
+                    String owner = snippetOwners.get(dependent.id());
+                    CellInfo ownerInfo = owner != null ? cells.get(owner) : null;
+                    if (ownerInfo != null && !owner.equals(cellId)) {
+                        ownerInfo.references.add(declaration.name());
+                    }
+                }
+            }
+        }
+    }
+
+    // Cells that must re-run, in notebook order: cells edited (never run, or failed) since their
+    // last execution, plus every later cell that uses a name defined by a stale cell.
+    // A failed cell stays stale, which also covers cells that failed on a name an edit now adds.
+    public synchronized List<NotebookCell> staleCells(List<NotebookCell> orderedCells) {
+        List<NotebookCell> stale = new ArrayList<>();
+        Set<String> dirtyNames = new HashSet<>();
+
+        for (NotebookCell cell : orderedCells) {
+            CellInfo info = cells.get(cell.getId());
+            boolean edited = info == null || !info.succeeded
+                    || !Objects.equals(info.executedCode, cell.getContent());
+
+            boolean dependsOnDirty = false;
+            if (!edited) {
+                for (String name : info.references) {
+                    if (dirtyNames.contains(name)) {
+                        dependsOnDirty = true;
+                        break;
+                    }
+                }
+            }
+
+            if (edited || dependsOnDirty) {
+                stale.add(cell);
+                if (info != null) {
+                    // whatever this cell defined is about to change
+                    dirtyNames.addAll(info.defines);
+                }
+            }
+        }
+        return stale;
+    }
+
+    // The cell was deleted: its names no longer make other cells stale
+    public synchronized void forget(String cellId) {
+        cells.remove(cellId);
+        snippetOwners.values().removeIf(cellId::equals);
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+        snippetOwners.clear();
+    }
+
+    // Identifiers used in code, skipping comments, string/char literals, text blocks and
+    // member names after '.', which can't refer to top-level JShell declarations
+    static Set<String> referencedIdentifiers(String code) {
+        Set<String> names = new HashSet<>();
+        if (code == null) return names;
+
+        int n = code.length();
+        int i = 0;
+        char lastSignificant = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+
+            // comments and literals, with the splitter's lexer (escaped quotes, text blocks)
+            int skipped = JavaSnippetSplitter.skipCommentOrLiteral(code, i);
+            if (skipped > i) {
+                if (c != '/') lastSignificant = c;
+                i = skipped;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+                if (lastSignificant != '.') {
+                    names.add(code.substring(start, i));
+                }
+                lastSignificant = 'a';
+            } else {
+                if (!Character.isWhitespace(c)) lastSignificant = c;
+                i++;
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,219 @@
+package com.vessel.Kernel;
+
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which snippets of a cell a session restore may replay without running the cell:
+ * imports, type declarations, methods, and variables whose initialiser can't have side effects.
+ *
+ * Like SnippetBatcher this is purely syntactic and errs on the safe side. An initialiser
+ * counts as pure when it is made of literals, names, operators, lambdas / method references,
+ * array creation and no-arg constructors of well-known JDK value/collection types. Any other
+ * call (methods, user constructors), assignment or ++/-- inside it means "skip".
+ */
+final class DeclarationFilter {
+
+    // Modifiers (and annotations, handled separately) that may precede any declaration
+    private static final Set<String> MODIFIERS = Set.of(
+            "public", "private", "protected", "static", "final", "abstract", "sealed", "non-sealed",
+            "strictfp", "default", "synchronized", "native", "transient", "volatile"
+    );
+
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+
+    // No-arg constructors that only build an empty object
+    private static final Set<String> PURE_CONSTRUCTORS = Set.of(
+            "Object", "String", "StringBuilder", "ArrayList", "LinkedList", "ArrayDeque", "PriorityQueue",
+            "HashMap", "LinkedHashMap", "TreeMap", "HashSet", "LinkedHashSet", "TreeSet",
+            "ConcurrentHashMap", "CopyOnWriteArrayList", "AtomicInteger", "AtomicLong", "AtomicBoolean",
+            "AtomicReference", "Random"
+    );
+
+    // new Type<...>()  (qualified or not, diamond or explicit type arguments)
+    private static final Pattern NO_ARG_NEW = Pattern.compile("\\bnew\\s+([\\w.]+)\\s*(<[^()]*>)?\\s*\\(\\s*\\)");
+    // new int[3], new String[]{...}
+    private static final Pattern ARRAY_NEW = Pattern.compile("\\bnew\\s+[\\w.]+\\s*(<[^()]*>)?\\s*\\[");
+    // something callable followed by '(' : name(, x.y(, Type<..>(, arr[i](
+    private static final Pattern CALL = Pattern.compile("[\\w>\\]]\\s*\\(");
+
+    private DeclarationFilter() {}
+
+    static boolean isReplayable(String snippet) {
+        if (SnippetBatcher.isPlainStatement(snippet)) return false;
+
+        String code = blankLiterals(SnippetBatcher.stripLeadingComments(snippet)).strip();
+        if (code.isEmpty()) return false;
+
+        int i = skipAnnotations(code, 0);
+        String word = readWord(code, i);
+        while (MODIFIERS.contains(word)) {
+            i = skipAnnotations(code, skipSpaces(code, i + word.length()));
+            word = readWord(code, i);
+        }
+
+        if (word.equals("import")) return true;
+        if (TYPE_KEYWORDS.contains(word)) return true;
+        if (code.startsWith("@interface", i)) return true;
+
+        // <T> before a generic method's return type
+        if (code.startsWith("<", i)) {
+            int end = skipAngles(code, i);
+            if (end < 0) return false;
+            i = skipSpaces(code, end);
+        }
+
+        // type: a.b.C<...>[][]
+        int end = skipType(code, i);
+        if (end < 0) return false;
+        i = skipSpaces(code, end);
+        String name = readWord(code, i);
+        if (name.isEmpty()) return false;
+        i = skipSpaces(code, i + name.length());
+        if (i >= code.length()) return true; // "int x" without the ';'
+
+        char next = code.charAt(i);
+        if (next == '(') return isMethod(code, i);       // method declaration: type name(...) { ... }
+        if (next == ';' || next == ',') return isPureInitialiser(code.substring(i + 1));
+        if (next == '=' && (i + 1 >= code.length() || code.charAt(i + 1) != '=')) {
+            return isPureInitialiser(code.substring(i + 1));
+        }
+        return false;
+    }
+
+    // Everything after the first '=' of a declaration (more declarators after ',' included)
+    static boolean isPureInitialiser(String initialiser) {
+        if (initialiser.contains("++") || initialiser.contains("--")) return false;
+        if (hasAssignment(initialiser)) return false;
+
+        Matcher constructor = NO_ARG_NEW.matcher(initialiser);
+        StringBuilder cleaned = new StringBuilder();
+        while (constructor.find()) {
+            String type = constructor.group(1);
+            String simpleName = type.substring(type.lastIndexOf('.') + 1);
+            if (!PURE_CONSTRUCTORS.contains(simpleName)) return false;
+            constructor.appendReplacement(cleaned, " ");
+        }
+        constructor.appendTail(cleaned);
+        String rest = ARRAY_NEW.matcher(cleaned).replaceAll(" [");
+
+        return !CALL.matcher(rest).find();
+    }
+
+    // name(...) followed by a body (or throws ... { body }), not a call statement
+    private static boolean isMethod(String code, int open) {
+        int depth = 0;
+        for (int i = open; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')' && --depth == 0) {
+                String after = code.substring(i + 1).strip();
+                return after.startsWith("{") || after.startsWith("throws");
+            }
+        }
+        return false;
+    }
+
+    // '=' that isn't part of ==, !=, <= or >=
+    private static boolean hasAssignment(String code) {
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) != '=') continue;
+            char before = i > 0 ? code.charAt(i - 1) : ' ';
+            char after = i + 1 < code.length() ? code.charAt(i + 1) : ' ';
+            if (after == '=') { i++; continue; }
+            if ("=!<>".indexOf(before) >= 0) continue;
+            return true;
+        }
+        return false;
+    }
+
+    // Returns the index after a (possibly qualified, generic, array) type, or -1
+    private static int skipType(String code, int i) {
+        String word = readWord(code, i);
+        if (word.isEmpty()) return -1;
+        i += word.length();
+        while (true) {
+            int j = skipSpaces(code, i);
+            if (j < code.length() && code.charAt(j) == '.') {
+                j = skipSpaces(code, j + 1);
+                String part = readWord(code, j);
+                if (part.isEmpty()) return -1;
+                i = j + part.length();
+            } else if (j < code.length() && code.charAt(j) == '<') {
+                i = skipAngles(code, j);
+                if (i < 0) return -1;
+            } else if (j < code.length() && code.charAt(j) == '[' && code.startsWith("]", skipSpaces(code, j + 1))) {
+                i = skipSpaces(code, j + 1) + 1;
+            } else {
+                return i;
+            }
+        }
+    }
+
+    private static int skipAngles(String code, int open) {
+        int depth = 0;
+        for (int i = open; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '<') depth++;
+            else if (c == '>' && --depth == 0) return i + 1;
+            else if (c == ';' || c == '{' || c == '=') return -1;
+        }
+        return -1;
+    }
+
+    private static int skipAnnotations(String code, int i) {
+        while (i < code.length() && code.charAt(i) == '@' && !code.startsWith("@interface", i)) {
+            i = skipType(code, i + 1);
+            if (i < 0) return code.length();
+            i = skipSpaces(code, i);
+            if (i < code.length() && code.charAt(i) == '(') {
+                int depth = 0;
+                for (; i < code.length(); i++) {
+                    if (code.charAt(i) == '(') depth++;
+                    else if (code.charAt(i) == ')' && --depth == 0) { i++; break; }
+                }
+            }
+            i = skipSpaces(code, i);
+        }
+        return i;
+    }
+
+    // Replaces the contents of string / char literals and text blocks with spaces, comments too,
+    // so nothing inside them is mistaken for a call or an assignment
+    static String blankLiterals(String code) {
+        StringBuilder out = new StringBuilder(code.length());
+        int n = code.length();
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            // same lexer as the splitter, so an escaped quote (\" or \""") never ends a literal early
+            int end = JavaSnippetSplitter.skipCommentOrLiteral(code, i);
+            if (end == i) {
+                out.append(c);
+                i++;
+            } else if (c == '/') {
+                out.append(" ".repeat(end - i));
+                i = end;
+            } else {
+                // keep the literal as an empty one ("" or ''), padded to its length
+                out.append(c).append(c).append(" ".repeat(Math.max(0, end - i - 2)));
+                i = end;
+            }
+        }
+        return out.toString();
+    }
+
+    // Identifier or keyword at start ("non-sealed" counts as one word)
+    private static String readWord(String code, int start) {
+        if (code.startsWith("non-sealed", start)) return "non-sealed";
+        int i = start;
+        while (i < code.length() && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+        return code.substring(start, i);
+    }
+
+    private static int skipSpaces(String code, int i) {
+        while (i < code.length() && Character.isWhitespace(code.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,51 @@
+package com.vessel.Kernel;
+
+/**
+ * Where the time and memory of one cell execution went.
+ *
+ * Compile/run come from the engine's TimedExecutionControl (time spent inside the
+ * kernel's invoke vs. the rest of each eval). CPU, allocation and GC numbers are read
+ * inside the kernel JVM by the KernelMeter, -1 means the meter wasn't available.
+ *
+ * @param compileTimeMs javac + class loading, summed over every eval of the cell
+ * @param runTimeMs Time the kernel spent running the cell's code
+ * @param cpuTimeMs CPU time of the kernel's execution thread
+ * @param allocatedBytes Bytes allocated by the kernel's execution thread
+ * @param gcCount Garbage collections in the kernel while the cell ran
+ * @param gcPauseMs Time those collections took (summed over all collectors)
+ * @param snippetsEvaluated Statements / declarations the cell was split into
+ * @param evalCalls jshell.eval calls after merging consecutive statements
+ * @param outputBytes Bytes written to stdout/stderr, including any truncated part
+ */
+public record ExecutionMetrics(long compileTimeMs, long runTimeMs, long cpuTimeMs, long allocatedBytes,
+                               long gcCount, long gcPauseMs, int snippetsEvaluated, int evalCalls,
+                               long outputBytes) {
+
+    public boolean hasKernelCounters() {
+        return cpuTimeMs >= 0;
+    }
+
+    // One-line summary for the cell badge, e.g. "compile 41 ms · run 3 ms · cpu 2 ms · 1.2 MB · 0 GC · 6 snippets · 120 B out"
+    public String summary() {
+        StringBuilder sb = new StringBuilder()
+                .append("compile ").append(compileTimeMs).append(" ms")
+                .append(" · run ").append(runTimeMs).append(" ms");
+        if (hasKernelCounters()) {
+            sb.append(" · cpu ").append(cpuTimeMs).append(" ms")
+                    .append(" · ").append(formatBytes(allocatedBytes))
+                    .append(" · ").append(gcCount).append(" GC");
+            if (gcCount > 0) sb.append(" (").append(gcPauseMs).append(" ms)");
+        }
+        sb.append(" · ").append(snippetsEvaluated).append(snippetsEvaluated == 1 ? " snippet" : " snippets");
+        if (evalCalls != snippetsEvaluated) sb.append(" in ").append(evalCalls).append(evalCalls == 1 ? " eval" : " evals");
+        sb.append(" · ").append(formatBytes(outputBytes)).append(" out");
+        return sb.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
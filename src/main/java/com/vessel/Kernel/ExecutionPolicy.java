@@ -0,0 +1,236 @@
+package com.vessel.Kernel;
+import com.vessel.core.log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compiled set of blocked code patterns (System.exit, ProcessBuilder, ...).
+ *
+ * All patterns are compiled into one trie. The scan passes over the cell with a table lookup per
+ * character and only walks the trie where a pattern's first character starts a token, so the cost
+ * barely depends on the number of rules. Comments, string/char literals and text blocks are skipped
+ * (with JavaSnippetSplitter's lexer), whitespace and comments between tokens are ignored, and only
+ * whole identifiers match (so "MySystem.exit" and "ProcessBuilderCount" don't trip a rule).
+ *
+ * Patterns come from -Dvessel.policy.file, else the bundled /execution-policy.txt resource.
+ */
+public final class ExecutionPolicy {
+
+    private static final String RESOURCE = "/execution-policy.txt";
+    private static final log engine = log.get("engine");
+
+    private final List<String> patterns;
+
+    // What a (ASCII) char can start, see findViolation()
+    private static final byte SKIP = 1;          // comment or literal
+    private static final byte PATTERN_START = 2; // first char of some pattern
+    private final byte[] kind = new byte[128];
+
+    // Trie over the (ASCII) characters that occur in patterns
+    private final int[] charClass = new int[128]; // char -> column, -1 = not in any pattern
+    private final int columns;
+    private final int[] children;                 // [node * columns + column] -> node, -1 = none
+    private final int[] patternAt;                // pattern (id) ending at each node, -1 = none
+
+    private ExecutionPolicy(List<String> rawPatterns) {
+        List<String> cleaned = new ArrayList<>();
+        for (String pattern : rawPatterns) {
+            String stripped = stripWhitespace(pattern);
+            if (!stripped.isEmpty() && !cleaned.contains(stripped)) cleaned.add(stripped);
+        }
+        this.patterns = List.copyOf(cleaned);
+
+        // --- alphabet ---
+        Arrays.fill(charClass, -1);
+        int columns = 0;
+        for (String pattern : patterns) {
+            for (char c : pattern.toCharArray()) {
+                if (c >= 128) throw new IllegalArgumentException("Policy patterns must be ASCII: " + pattern);
+                if (charClass[c] < 0) charClass[c] = columns++;
+            }
+            kind[pattern.charAt(0)] |= PATTERN_START;
+        }
+        kind['"'] |= SKIP;
+        kind['\''] |= SKIP;
+        kind['/'] |= SKIP;
+        this.columns = columns;
+
+        // --- trie ---
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(newRow(columns));
+        ends.add(-1);
+        for (int id = 0; id < patterns.size(); id++) {
+            int node = 0;
+            for (char c : patterns.get(id).toCharArray()) {
+                int col = charClass[c];
+                if (trie.get(node)[col] < 0) {
+                    trie.get(node)[col] = trie.size();
+                    trie.add(newRow(columns));
+                    ends.add(-1);
+                }
+                node = trie.get(node)[col];
+            }
+            ends.set(node, id);
+        }
+
+        this.children = new int[trie.size() * columns];
+        this.patternAt = new int[trie.size()];
+        for (int i = 0; i < trie.size(); i++) {
+            System.arraycopy(trie.get(i), 0, children, i * columns, columns);
+            patternAt[i] = ends.get(i);
+        }
+    }
+
+    // === Factories ===
+
+    public static ExecutionPolicy of(List<String> patterns) {
+        return new ExecutionPolicy(patterns);
+    }
+
+    public static ExecutionPolicy fromFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new ExecutionPolicy(readPatterns(reader));
+        }
+    }
+
+    // -Dvessel.policy.file if set, else the bundled policy, else the given fallback patterns
+    public static ExecutionPolicy loadDefault(List<String> fallback) {
+        String override = System.getProperty("vessel.policy.file");
+        if (override != null) {
+            try {
+                ExecutionPolicy policy = fromFile(Path.of(override));
+                engine.info(" Loaded execution policy from " + override + " (" + policy.patterns.size() + " rules)");
+                return policy;
+            } catch (IOException | IllegalArgumentException e) {
+                engine.error(" Could not load execution policy " + override + ", using bundled policy", e);
+            }
+        }
+
+        try (InputStream in = ExecutionPolicy.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return new ExecutionPolicy(readPatterns(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            engine.error(" Could not load bundled execution policy", e);
+        }
+        return new ExecutionPolicy(fallback);
+    }
+
+    private static List<String> readPatterns(BufferedReader reader) throws IOException {
+        List<String> patterns = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            patterns.add(line);
+        }
+        return patterns;
+    }
+
+    // === Scanning ===
+
+    // First blocked pattern found in code (outside comments/literals), or empty if the code is allowed
+    public Optional<String> findViolation(String code) {
+        if (code == null || patterns.isEmpty()) return Optional.empty();
+
+        byte[] kind = this.kind;
+        int n = code.length();
+        int i = 0;
+        while (true) {
+            // tight loop to the next char that can start a comment, a literal or a pattern
+            while (i < n) {
+                char c = code.charAt(i);
+                if (c < 128 && kind[c] != 0) break;
+                i++;
+            }
+            if (i >= n) return Optional.empty();
+            i = visit(code, i, code.charAt(i));
+            if (i < 0) return Optional.of(patterns.get(-i - 1));
+        }
+    }
+
+    // At a char that may start a comment, a literal or a pattern: returns where to go on,
+    // or -(pattern id + 1) for a hit
+    private int visit(String code, int i, char c) {
+        int k = kind[c];
+        if ((k & SKIP) != 0) {
+            int end = JavaSnippetSplitter.skipCommentOrLiteral(code, i);
+            if (end > i) return end;
+        }
+        // a pattern starting with an identifier has to start one ("MySystem.exit" is no hit)
+        if ((k & PATTERN_START) != 0
+                && (i == 0 || !Character.isJavaIdentifierStart(c) || !Character.isJavaIdentifierPart(code.charAt(i - 1)))) {
+            int id = matchAt(code, i);
+            if (id >= 0) return -id - 1;
+        }
+        return i + 1;
+    }
+
+    // Walks the trie from `start`, across whitespace and comments between tokens. Returns the
+    // id of the pattern found there if it ends at a token boundary ("ProcessBuilderCount" is no hit), else -1
+    private int matchAt(String code, int start) {
+        int n = code.length();
+        int node = 0;
+        char previous = 0;
+        boolean gap = false;
+        int i = start;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c <= ' ' || (c >= 128 && Character.isWhitespace(c))) {
+                gap = true;
+                i++;
+                continue;
+            }
+            if (c == '/') {
+                int end = JavaSnippetSplitter.skipCommentOrLiteral(code, i);
+                if (end > i) {
+                    gap = true;
+                    i = end;
+                    continue;
+                }
+            }
+            // "Sys tem" is two identifiers, not System
+            if (gap && Character.isJavaIdentifierPart(previous) && Character.isJavaIdentifierPart(c)) return -1;
+
+            int col = c < 128 && c != '"' && c != '\'' ? charClass[c] : -1;
+            if (col < 0) return -1;
+            node = children[node * columns + col];
+            if (node < 0) return -1;
+            previous = c;
+            gap = false;
+            i++;
+
+            int id = patternAt[node];
+            if (id >= 0 && (!Character.isJavaIdentifierPart(c) || i >= n || !Character.isJavaIdentifierPart(code.charAt(i)))) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    private static int[] newRow(int columns) {
+        int[] row = new int[columns];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static String stripWhitespace(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) sb.append(s.charAt(i));
+        }
+        return sb.toString();
+    }
+}
@@ -15,5 +15,21 @@ package com.vessel.Kernel;
  * @param error Error messages if execution failed (empty string if successful)
  * @param executionTimeMs Time taken to execute in milliseconds
  * @param success True if execution completed without errors, false otherwise
+ * @param truncated Set when output only holds the head and tail of a huge output (null otherwise)
+ * @param budgetExceeded The resource budget the cell ran over (null if it stayed within all of them)
+ * @param metrics Compile/run split, kernel CPU/allocation/GC and output size (null if the cell never ran)
+ * @param stopReport How the engine stopped the cell, if it had to (null otherwise)
  */
-public record ExecutionResult(String output, String error, long executionTimeMs, boolean success) {}
\ No newline at end of file
+public record ExecutionResult(String output, String error, long executionTimeMs, boolean success,
+                              TruncatedOutput truncated, ResourceBudget.Kind budgetExceeded,
+                              ExecutionMetrics metrics, StopReport stopReport) {
+
+    public ExecutionResult(String output, String error, long executionTimeMs, boolean success) {
+        this(output, error, executionTimeMs, success, null, null, null, null);
+    }
+
+    public ExecutionResult(String output, String error, long executionTimeMs, boolean success,
+                           TruncatedOutput truncated, ResourceBudget.Kind budgetExceeded, ExecutionMetrics metrics) {
+        this(output, error, executionTimeMs, success, truncated, budgetExceeded, metrics, null);
+    }
+}
\ No newline at end of file
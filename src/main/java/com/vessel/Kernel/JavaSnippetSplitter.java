@@ -0,0 +1,256 @@
+package com.vessel.Kernel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cuts a cell into the top-level snippets JShell evaluates one at a time.
+ *
+ * Works like a (small) Java lexer over offsets into the original string: comments, string
+ * and char literals and text blocks are skipped, so a "}" in a string or a ";" in a comment
+ * no longer splits the cell. A top-level '}' or ';' only ends a snippet when the statement is really
+ * over, so if/else (with or without braces), try/catch/finally, do/while, array initialisers,
+ * lambdas and anonymous classes stay whole. Everything else after a '}' (a method after a class,
+ * an expression on the next line) is a snippet of its own, as JShell needs it.
+ *
+ * Results are cached per cell text, so re-running an unchanged cell doesn't re-scan it.
+ */
+final class JavaSnippetSplitter {
+
+    private static final int CACHE_SIZE = 256;
+
+    // After a top-level '}', these keywords continue the same statement
+    private static final Set<String> CONTINUATION_KEYWORDS = Set.of("else", "catch", "finally");
+
+    // After the '}' of an expression (new X() {...}, new int[] {...}) these continue it, e.g. ".start()"
+    private static final String EXPRESSION_FOLLOWERS = ".,)[?:+-*/%&|^<>=!";
+
+    // LRU of recently split cells (access-ordered)
+    private final Map<String, List<String>> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    List<String> split(String code) {
+        synchronized (cache) {
+            List<String> cached = cache.get(code);
+            if (cached != null) {
+                cacheHits++;
+                return cached;
+            }
+            cacheMisses++;
+        }
+
+        List<String> snippets = List.copyOf(splitUncached(code));
+        synchronized (cache) {
+            cache.put(code, snippets);
+        }
+        return snippets;
+    }
+
+    long getCacheHits() { synchronized (cache) { return cacheHits; } }
+    long getCacheMisses() { synchronized (cache) { return cacheMisses; } }
+
+    static List<String> splitUncached(String code) {
+        List<String> snippets = new ArrayList<>();
+        int n = code.length();
+
+        int start = 0;                // start offset of the current snippet
+        int depth = 0;                // combined (), {}, [] nesting
+        boolean significant = false;  // seen anything besides whitespace/comments in this snippet
+        boolean assignedBeforeBlock = false; // top-level '=' before the first top-level '{' (initialiser / lambda)
+        boolean newBeforeBlock = false;      // top-level 'new' before the first top-level '{' (anonymous class, array)
+        boolean blockOpened = false;
+        int openDos = 0;                     // top-level do's still waiting for their while
+
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+
+            // --- comments ---
+            if (c == '/' && i + 1 < n && code.charAt(i + 1) == '/') {
+                i = skipLineComment(code, i);
+                continue;
+            }
+            if (c == '/' && i + 1 < n && code.charAt(i + 1) == '*') {
+                i = skipBlockComment(code, i);
+                continue;
+            }
+
+            if (!Character.isWhitespace(c)) significant = true;
+
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = wordEnd(code, i);
+                if (depth == 0) {
+                    if (end - i == 2 && code.startsWith("do", i)) {
+                        openDos++;
+                    } else if (end - i == 3 && code.startsWith("new", i) && !blockOpened) {
+                        newBeforeBlock = true;
+                    }
+                }
+                i = end;
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    i = code.startsWith("\"\"\"", i) ? skipTextBlock(code, i) : skipQuoted(code, i, '"');
+                    continue;
+                }
+                case '\'' -> {
+                    i = skipQuoted(code, i, '\'');
+                    continue;
+                }
+                case '(', '[' -> depth++;
+                case ')', ']' -> depth = Math.max(0, depth - 1);
+                case '{' -> {
+                    if (depth == 0) blockOpened = true;
+                    depth++;
+                }
+                case '=' -> {
+                    if (depth == 0 && !blockOpened && isAssignment(code, i)) assignedBeforeBlock = true;
+                }
+                case ';', '}' -> {
+                    if (c == '}') depth = Math.max(0, depth - 1);
+                    if (depth > 0 || (c == '}' && assignedBeforeBlock)) break;
+
+                    int next = skipTrivia(code, i + 1);
+                    String word = wordAt(code, next);
+                    if (word.equals("while") && openDos > 0) {
+                        openDos--; // do ... while (...);
+                        break;
+                    }
+                    if (word.equals("else")
+                            || (c == '}' && CONTINUATION_KEYWORDS.contains(word))
+                            || (c == '}' && newBeforeBlock && next < n && EXPRESSION_FOLLOWERS.indexOf(code.charAt(next)) >= 0)) {
+                        break;
+                    }
+                    addSnippet(snippets, code, start, i + 1);
+                    start = i + 1;
+                    significant = assignedBeforeBlock = newBeforeBlock = blockOpened = false;
+                    openDos = 0;
+                }
+                default -> { }
+            }
+            i++;
+        }
+
+        if (significant) {
+            addSnippet(snippets, code, start, n);
+        }
+        return snippets;
+    }
+
+    private static void addSnippet(List<String> snippets, String code, int from, int to) {
+        String snippet = code.substring(from, to).strip();
+        if (!snippet.isEmpty() && !snippet.equals(";")) {
+            snippets.add(snippet);
+        }
+    }
+
+    // identifier / keyword starting at i, "" if there is none
+    private static String wordAt(String code, int i) {
+        if (i >= code.length() || !Character.isJavaIdentifierStart(code.charAt(i))) return "";
+        return code.substring(i, wordEnd(code, i));
+    }
+
+    private static int wordEnd(String code, int i) {
+        int end = i + 1;
+        while (end < code.length() && Character.isJavaIdentifierPart(code.charAt(end))) end++;
+        return end;
+    }
+
+    // '=' that is an assignment, not part of ==, !=, <=, >=, or ->
+    private static boolean isAssignment(String code, int i) {
+        char prev = i > 0 ? code.charAt(i - 1) : ' ';
+        char next = i + 1 < code.length() ? code.charAt(i + 1) : ' ';
+        if (next == '=' || next == '>') return false;
+        return prev != '=' && prev != '!' && prev != '<' && prev != '>';
+    }
+
+    private static int skipTrivia(String code, int i) {
+        int n = code.length();
+        while (i < n) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < n && code.charAt(i + 1) == '/') {
+                i = skipLineComment(code, i);
+            } else if (c == '/' && i + 1 < n && code.charAt(i + 1) == '*') {
+                i = skipBlockComment(code, i);
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // End of the comment, string / char literal or text block starting at i (escapes honoured),
+    // i itself if none starts there. The one lexer for cell text: the other scanners
+    // (CellDependencyGraph, DeclarationFilter) skip through it too
+    static int skipCommentOrLiteral(String code, int i) {
+        int n = code.length();
+        if (i >= n) return i;
+        char c = code.charAt(i);
+        if (c == '/' && i + 1 < n && code.charAt(i + 1) == '/') return skipLineComment(code, i);
+        if (c == '/' && i + 1 < n && code.charAt(i + 1) == '*') return skipBlockComment(code, i);
+        if (c == '"') return code.startsWith("\"\"\"", i) ? skipTextBlock(code, i) : skipQuoted(code, i, '"');
+        if (c == '\'') return skipQuoted(code, i, '\'');
+        return i;
+    }
+
+    private static int skipLineComment(String code, int i) {
+        int end = code.indexOf('\n', i + 2);
+        return end < 0 ? code.length() : end;
+    }
+
+    private static int skipBlockComment(String code, int i) {
+        int end = code.indexOf("*/", i + 2);
+        return end < 0 ? code.length() : end + 2;
+    }
+
+    // "..." or '...' with escapes. Stops at an unterminated line end so one bad quote
+    // can't swallow the rest of the cell.
+    private static int skipQuoted(String code, int i, char quote) {
+        int n = code.length();
+        i++;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c > '\\') {
+                i++; // letters and most other chars: nothing to check
+            } else if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private static int skipTextBlock(String code, int i) {
+        int n = code.length();
+        i += 3;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"' && code.startsWith("\"\"\"", i)) {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,217 @@
+package com.vessel.Kernel;
+
+import com.vessel.core.VesselRuntime;
+import com.vessel.core.log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the number of live kernels (one remote JVM each) in check when many notebooks are open.
+ *
+ * Every notebook with a running engine is registered here, least recently used first. The
+ * governor hibernates idle notebooks (their engine is shut down, cells stay, the next run
+ * wakes a fresh kernel and restores the session) when:
+ *   - admitting another kernel would exceed the live-kernel cap (LRU eviction),
+ *   - a kernel has been idle longer than the idle timeout,
+ *   - the kernels together use more heap than the memory budget (as last sampled in each kernel).
+ * Busy kernels (running, queued or restoring) are never touched, and the most recently used
+ * one is never evicted for memory. Limits come from system properties, see the defaults below.
+ */
+public final class KernelGovernor {
+
+    // === Defaults ===
+    private static final int DEFAULT_MAX_LIVE = Integer.getInteger("vessel.kernel.max.live", 3);
+    private static final long DEFAULT_IDLE_MS = Long.getLong("vessel.kernel.idle.minutes", 15) * 60_000;
+    private static final long DEFAULT_MEMORY_BUDGET = Long.getLong("vessel.kernel.memory.budget.mb", 4096) * 1024 * 1024;
+    private static final long SWEEP_INTERVAL_MS = 30_000;
+    private static volatile KernelGovernor shared;
+
+    // A notebook whose kernel the governor may shut down
+    public interface Governed {
+        NotebookEngine getEngine();
+        String getName();
+        // Lets go of the engine if it is still idle; false if it is busy again (or already gone)
+        boolean hibernate();
+    }
+
+    // === State ===
+    private final int maxLive;
+    private final long idleMillis;
+    private final long memoryBudgetBytes;
+    private final LinkedHashMap<Governed, Long> live = new LinkedHashMap<>(); // -> last use, re-inserted on use so LRU is first
+    private final VesselRuntime.Scope runtime = VesselRuntime.newScope("kernel-governor");
+
+    // === Stats ===
+    private final AtomicLong hibernations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // === Loggers ===
+    private final log governor = log.get("engine");
+
+    public KernelGovernor(int maxLive, long idleMillis, long memoryBudgetBytes) {
+        this.maxLive = Math.max(1, maxLive);
+        this.idleMillis = idleMillis;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        runtime.startThread("sweep", this::sweepLoop);
+        governor.info(" KernelGovernor: max " + this.maxLive + " live kernels, idle "
+                + idleMillis / 60_000 + " min, budget " + memoryBudgetBytes / (1024 * 1024) + " MB");
+    }
+
+    // Lazily created governor shared by every notebook in this app instance
+    public static KernelGovernor getShared() {
+        if (shared == null) {
+            synchronized (KernelGovernor.class) {
+                if (shared == null) {
+                    shared = new KernelGovernor(DEFAULT_MAX_LIVE, DEFAULT_IDLE_MS, DEFAULT_MEMORY_BUDGET);
+                }
+            }
+        }
+        return shared;
+    }
+
+    // Stops the sweep of the shared governor, if one was ever created (app exit)
+    public static void shutdownShared() {
+        KernelGovernor current = shared;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    // Called right before `notebook` gets a kernel: makes room by hibernating the least recently used idle ones
+    public void admit(Governed notebook) {
+        List<Governed> victims = new ArrayList<>();
+        synchronized (this) {
+            live.remove(notebook);
+            int room = maxLive - 1;
+            for (Governed candidate : live.keySet()) {
+                if (live.size() - victims.size() <= room) break;
+                if (isIdle(candidate)) victims.add(candidate);
+            }
+            if (live.size() - victims.size() > room) {
+                governor.warning(" All " + live.size() + " live kernels are busy, going over the cap of " + maxLive);
+            }
+            live.put(notebook, System.currentTimeMillis());
+        }
+        evictions.addAndGet(hibernate(victims, "kernel cap"));
+    }
+
+    // Marks the notebook as just used (tab selected, cell run)
+    public synchronized void touch(Governed notebook) {
+        if (live.remove(notebook) != null) live.put(notebook, System.currentTimeMillis());
+    }
+
+    // The notebook's kernel is gone (closed, shut down or hibernated)
+    public synchronized void release(Governed notebook) {
+        live.remove(notebook);
+    }
+
+    // One pass over the live kernels: the cap (if admit() had to go over it), idle timeout, then the memory budget
+    public void sweep() {
+        List<Governed> victims = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            List<Governed> order = new ArrayList<>(live.keySet());
+            Governed mostRecent = order.isEmpty() ? null : order.get(order.size() - 1);
+
+            int over = order.size() - maxLive;
+            long heapUsed = 0;
+            for (Governed notebook : order) {
+                boolean idle = isIdle(notebook);
+                if (idle && over > 0 && notebook != mostRecent) {
+                    victims.add(notebook);
+                    over--;
+                } else if (idle && idleMillis > 0 && now - lastUse(notebook) > idleMillis) {
+                    victims.add(notebook);
+                } else {
+                    heapUsed += heapOf(notebook);
+                }
+            }
+            for (Governed notebook : order) {
+                if (memoryBudgetBytes <= 0 || heapUsed <= memoryBudgetBytes) break;
+                if (notebook == mostRecent || victims.contains(notebook) || !isIdle(notebook)) continue;
+                victims.add(notebook);
+                heapUsed -= heapOf(notebook);
+            }
+            if (memoryBudgetBytes > 0 && heapUsed > memoryBudgetBytes) {
+                governor.warning(" Kernels use " + heapUsed / (1024 * 1024) + " MB, over the "
+                        + memoryBudgetBytes / (1024 * 1024) + " MB budget, but none can be hibernated");
+            }
+        }
+        hibernate(victims, "sweep: cap / idle / memory budget");
+    }
+
+    public synchronized int getLiveCount() {
+        return live.size();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long heapUsed = 0;
+        int liveCount;
+        synchronized (this) {
+            liveCount = live.size();
+            for (Governed notebook : live.keySet()) heapUsed += heapOf(notebook);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("liveKernels", liveCount);
+        stats.put("maxLiveKernels", maxLive);
+        stats.put("kernelHeapUsedMB", heapUsed / (1024 * 1024));
+        stats.put("memoryBudgetMB", memoryBudgetBytes / (1024 * 1024));
+        stats.put("hibernations", hibernations.get());
+        stats.put("capEvictions", evictions.get());
+        return stats;
+    }
+
+    public void shutdown() {
+        runtime.close();
+    }
+
+    // Hibernates outside the lock: Governed.hibernate() calls back into release()
+    private int hibernate(List<Governed> victims, String reason) {
+        int count = 0;
+        for (Governed notebook : victims) {
+            if (notebook.hibernate()) {
+                count++;
+                hibernations.incrementAndGet();
+                governor.info(" Hibernated kernel of '" + notebook.getName() + "' (" + reason + ")");
+            }
+        }
+        return count;
+    }
+
+    private void sweepLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(SWEEP_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                governor.error(" Kernel sweep failed", e);
+            }
+        }
+    }
+
+    private static boolean isIdle(Governed notebook) {
+        NotebookEngine engine = notebook.getEngine();
+        return engine != null && engine.isIdle();
+    }
+
+    // Caller holds the lock
+    private long lastUse(Governed notebook) {
+        NotebookEngine engine = notebook.getEngine();
+        long touched = live.getOrDefault(notebook, 0L);
+        return engine == null ? touched : Math.max(touched, engine.getLastActivityMillis());
+    }
+
+    private static long heapOf(Governed notebook) {
+        NotebookEngine engine = notebook.getEngine();
+        return engine == null ? 0 : Math.max(0, engine.getKernelHeapUsedBytes());
+    }
+}
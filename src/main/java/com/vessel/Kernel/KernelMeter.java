@@ -0,0 +1,449 @@
+package com.vessel.Kernel;
+
+import com.vessel.core.log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Host side of the in-kernel counters (CPU time, allocated bytes, GC) used for
+ * ExecutionMetrics and for CPU / allocation budgets.
+ *
+ * User code runs inside the JShell kernel JVM, so ThreadMXBean and the GC beans have to
+ * be read there. The engine defines a small helper class in the kernel (METER_SOURCE) at
+ * boot and after every reset. At the end of each cell one sample() eval returns the
+ * execution thread's cumulative counters; the difference to the previous sample is what
+ * the cell used.
+ *
+ * Budgets: arm() snapshots the thread and starts a daemon watcher that compares CPU time /
+ * allocated bytes against the limits every WATCH_INTERVAL_MS. When a limit trips the
+ * watcher writes the budget kind into a beacon file, which the engine polls while it
+ * waits so it can jshell.stop() the cell. Only cells with a CPU or allocation budget pay
+ * for the extra arm eval, wall time is enforced by the engine alone.
+ *
+ * Memory watchdog: watchMemory() (once per session, no per-cell cost) puts usage thresholds on
+ * the kernel's old generation pools and listens for GC notifications. When the old generation
+ * is still above the limit after `strikes` collections in a row, or after a full GC, the
+ * listener writes a second beacon; the engine stops the running cell before the kernel hits
+ * an OutOfMemoryError (which tends to take the JDI connection, and the session, with it).
+ * Some collectors (G1 with large arrays) don't collect at all while the old generation fills
+ * up, so a poller forces one full GC (at most once per second) when the usage threshold is
+ * crossed: what's left after it is live data.
+ *
+ * Thread dumps: listenForDumps() starts a kernel thread that answers a request file with the
+ * stacks of all kernel threads. The engine asks for one when a stopped cell doesn't let go of
+ * the kernel, see NotebookEngine.stopWorker().
+ */
+class KernelMeter {
+
+    // === Kernel side ===
+    private static final String METER_CLASS = "VesselKernelMeter";
+    private static final String METER_SOURCE = """
+            class VesselKernelMeter {
+                static final com.sun.management.ThreadMXBean MX =
+                        (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+                static volatile Thread target;
+                static volatile long cpuLimit, allocLimit, cpuStart, allocStart, armId;
+                static volatile java.nio.file.Path beacon;
+                static Thread watcher;
+
+                static synchronized void arm(long cpuLimitNs, long allocLimitBytes, String beaconPath, long id) {
+                    Thread t = Thread.currentThread();
+                    armId = id;
+                    cpuLimit = cpuLimitNs;
+                    allocLimit = allocLimitBytes;
+                    beacon = java.nio.file.Path.of(beaconPath);
+                    cpuStart = MX.getThreadCpuTime(t.threadId());
+                    allocStart = MX.getThreadAllocatedBytes(t.threadId());
+                    target = t;
+                    if (watcher == null) {
+                        watcher = new Thread(VesselKernelMeter::watch, "vessel-budget-watcher");
+                        watcher.setDaemon(true);
+                        watcher.start();
+                    }
+                }
+
+                static String tripped(Thread t) {
+                    if (cpuLimit > 0 && MX.getThreadCpuTime(t.threadId()) - cpuStart > cpuLimit) return "CPU_TIME";
+                    if (allocLimit > 0 && MX.getThreadAllocatedBytes(t.threadId()) - allocStart > allocLimit) return "ALLOCATION";
+                    return null;
+                }
+
+                static void watch() {
+                    while (true) {
+                        Thread t = target;
+                        long id = armId;
+                        String kind = t == null ? null : tripped(t);
+                        if (kind != null && target == t) {
+                            target = null;
+                            try {
+                                java.nio.file.Files.writeString(beacon, kind + " " + id);
+                            } catch (java.io.IOException ignored) {
+                            }
+                        }
+                        try {
+                            Thread.sleep(%d);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+
+                static volatile java.nio.file.Path memoryBeacon;
+                static volatile int memoryStrikes, memoryStrikesNeeded;
+                static volatile long lastForcedGc;
+
+                // Old generation above limitPercent of its max after `strikes` GCs in a row (or one full GC) -> memory beacon.
+                // Listener and poller outlive a session reset (same JVM), so the previous ones are looked up and removed.
+                static synchronized void watchMemory(int limitPercent, int strikes, String beaconPath) {
+                    memoryBeacon = java.nio.file.Path.of(beaconPath);
+                    memoryStrikesNeeded = Math.max(1, strikes);
+                    memoryStrikes = 0;
+                    for (var pool : java.lang.management.ManagementFactory.getMemoryPoolMXBeans()) {
+                        if (!isOldGen(pool)) continue;
+                        long max = pool.getUsage().getMax() > 0 ? pool.getUsage().getMax() : Runtime.getRuntime().maxMemory();
+                        if (pool.isCollectionUsageThresholdSupported()) pool.setCollectionUsageThreshold(max / 100 * limitPercent);
+                        if (pool.isUsageThresholdSupported()) pool.setUsageThreshold(max / 100 * limitPercent);
+                    }
+                    String key = "vessel.memory.watchdog:" + beaconPath;
+                    javax.management.NotificationListener listener = VesselKernelMeter::afterGc;
+                    Thread poller = new Thread(VesselKernelMeter::pollMemory, "vessel-memory-watchdog");
+                    poller.setDaemon(true);
+                    Object previous = System.getProperties().put(key, new Object[] {listener, poller});
+                    if (previous instanceof Object[] old && old[1] instanceof Thread oldPoller) oldPoller.interrupt();
+                    for (var gc : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+                        if (!(gc instanceof javax.management.NotificationEmitter emitter)) continue;
+                        if (previous instanceof Object[] old && old[0] instanceof javax.management.NotificationListener oldListener) {
+                            try {
+                                emitter.removeNotificationListener(oldListener);
+                            } catch (javax.management.ListenerNotFoundException ignored) {
+                            }
+                        }
+                        emitter.addNotificationListener(listener, null, null);
+                    }
+                    poller.start();
+                }
+
+                // Usage threshold crossed (garbage included): a full GC tells whether it's live data, see afterGc
+                static void pollMemory() {
+                    while (true) {
+                        boolean over = false;
+                        for (var pool : java.lang.management.ManagementFactory.getMemoryPoolMXBeans()) {
+                            if (isOldGen(pool) && pool.isUsageThresholdSupported() && pool.isUsageThresholdExceeded()) over = true;
+                        }
+                        long now = System.currentTimeMillis();
+                        if (over && now - lastForcedGc >= 1000 && !java.nio.file.Files.exists(memoryBeacon)) {
+                            lastForcedGc = now;
+                            System.gc();
+                        }
+                        try {
+                            Thread.sleep(%d);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+
+                static boolean isOldGen(java.lang.management.MemoryPoolMXBean pool) {
+                    String name = pool.getName();
+                    return pool.getType() == java.lang.management.MemoryType.HEAP
+                            && !name.contains("Eden") && !name.contains("Survivor") && !name.contains("Young");
+                }
+
+                static void afterGc(javax.management.Notification notification, Object handback) {
+                    if (!com.sun.management.GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                    var info = com.sun.management.GarbageCollectionNotificationInfo.from(
+                            (javax.management.openmbean.CompositeData) notification.getUserData());
+                    var after = info.getGcInfo().getMemoryUsageAfterGc();
+                    String over = null;
+                    for (var pool : java.lang.management.ManagementFactory.getMemoryPoolMXBeans()) {
+                        if (!isOldGen(pool) || !pool.isCollectionUsageThresholdSupported()) continue;
+                        var usage = after.get(pool.getName());
+                        long threshold = pool.getCollectionUsageThreshold();
+                        if (usage != null && threshold > 0 && usage.getUsed() >= threshold) {
+                            long max = usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+                            over = pool.getName() + " " + usage.getUsed() + " " + max;
+                        }
+                    }
+                    boolean fullGc = "System.gc()".equals(info.getGcCause());
+                    if (over == null) {
+                        memoryStrikes = 0;
+                    } else if (++memoryStrikes >= memoryStrikesNeeded || fullGc) {
+                        memoryStrikes = 0;
+                        try {
+                            java.nio.file.Files.writeString(memoryBeacon, over);
+                        } catch (java.io.IOException ignored) {
+                        }
+                    }
+                }
+
+                // Thread dumps on request: answered by a thread of its own, so a dump works while the
+                // execution thread is stuck. Like the memory watchdog it outlives a session reset.
+                static synchronized void listenForDumps(String requestPath, String dumpPath) {
+                    java.nio.file.Path request = java.nio.file.Path.of(requestPath);
+                    java.nio.file.Path dump = java.nio.file.Path.of(dumpPath);
+                    Thread listener = new Thread(() -> answerDumps(request, dump), "vessel-diagnostics");
+                    listener.setDaemon(true);
+                    Object previous = System.getProperties().put("vessel.diagnostics:" + requestPath, listener);
+                    if (previous instanceof Thread old) old.interrupt();
+                    listener.start();
+                }
+
+                static void answerDumps(java.nio.file.Path request, java.nio.file.Path dump) {
+                    while (true) {
+                        try {
+                            if (java.nio.file.Files.deleteIfExists(request)) {
+                                java.nio.file.Path partial = java.nio.file.Path.of(dump + ".part");
+                                java.nio.file.Files.writeString(partial, threadDump());
+                                java.nio.file.Files.move(partial, dump, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                                        java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                            }
+                            Thread.sleep(%d);
+                        } catch (InterruptedException e) {
+                            return;
+                        } catch (java.io.IOException | RuntimeException ignored) {
+                        }
+                    }
+                }
+
+                // User threads first (the stuck cell is one of them), JDK / Vessel daemons after
+                static String threadDump() {
+                    String nl = System.lineSeparator();
+                    StringBuilder out = new StringBuilder();
+                    Thread.getAllStackTraces().entrySet().stream()
+                            .sorted((a, b) -> Boolean.compare(a.getKey().isDaemon(), b.getKey().isDaemon()))
+                            .forEach(entry -> {
+                                Thread t = entry.getKey();
+                                out.append("Thread ").append(t.getName()).append(" (").append(t.getState())
+                                        .append(t.isDaemon() ? ", daemon)" : ")").append(nl);
+                                for (StackTraceElement frame : entry.getValue()) out.append("    at ").append(frame).append(nl);
+                                out.append(nl);
+                            });
+                    return out.toString();
+                }
+
+                // cumulative "cpuNanos allocatedBytes gcCount gcMillis" + heap used / max, also ends any armed budget
+                static String sample() {
+                    Thread t = Thread.currentThread();
+                    target = null;
+                    long gcCount = 0, gcMillis = 0;
+                    for (var gc : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+                        gcCount += Math.max(0, gc.getCollectionCount());
+                        gcMillis += Math.max(0, gc.getCollectionTime());
+                    }
+                    Runtime rt = Runtime.getRuntime();
+                    return MX.getThreadCpuTime(t.threadId()) + " " + MX.getThreadAllocatedBytes(t.threadId())
+                            + " " + gcCount + " " + gcMillis + " " + (rt.totalMemory() - rt.freeMemory()) + " " + rt.maxMemory();
+                }
+            }
+            """;
+    private static final long WATCH_INTERVAL_MS = 20;
+    private static final long MEMORY_POLL_MS = 50;
+    private static final long DUMP_POLL_MS = 50;
+
+    // Cumulative kernel counters at one point in time (the heap values are gauges, not counters)
+    record Sample(long cpuNanos, long allocatedBytes, long gcCount, long gcMillis, long heapUsedBytes, long heapMaxBytes) {
+
+        Sample minus(Sample earlier) {
+            return new Sample(cpuNanos - earlier.cpuNanos, allocatedBytes - earlier.allocatedBytes,
+                    gcCount - earlier.gcCount, gcMillis - earlier.gcMillis, heapUsedBytes, heapMaxBytes);
+        }
+    }
+
+    // === State ===
+    private final Path beacon;
+    private final Path memoryBeacon;  // written by the memory watchdog: "poolName usedBytes maxBytes"
+    private final Path dumpRequest;   // created by the engine, answered by the kernel with dumpFile
+    private final Path dumpFile;
+    private boolean defined = false; // helper class evaluated in the current JShell session
+    private Sample baseline;         // counters at the end of the previous cell (null = take a new one first)
+    private volatile long armId = 0; // tags beacon writes so a late write from the previous cell is ignored
+
+    // === Loggers ===
+    private final log engine = log.get("engine");
+
+    KernelMeter() {
+        Path path;
+        try {
+            path = Files.createTempFile("vessel-budget-", ".beacon");
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path = Path.of(System.getProperty("java.io.tmpdir"), "vessel-budget-" + System.nanoTime() + ".beacon");
+        }
+        this.beacon = path;
+        this.memoryBeacon = Path.of(path + ".memory");
+        this.dumpRequest = Path.of(path + ".dump-request");
+        this.dumpFile = Path.of(path + ".dump");
+    }
+
+    // Source to eval once per JShell session before anything else
+    String defineSnippet() {
+        return METER_SOURCE.formatted(WATCH_INTERVAL_MS, MEMORY_POLL_MS, DUMP_POLL_MS);
+    }
+
+    boolean isDefined() { return defined; }
+    void markDefined() { defined = true; }
+
+    // The helper class lives in the user's session, but isn't theirs to see
+    boolean isHelperType(String typeName) { return METER_CLASS.equals(typeName); }
+
+    // JShell was reset / rebuilt, the helper class is gone
+    void forget() {
+        defined = false;
+        baseline = null;
+    }
+
+    boolean hasBaseline() { return baseline != null; }
+    void setBaseline(Sample sample) { baseline = sample; }
+
+    // A cell was stopped before its closing sample, its usage would leak into the next cell
+    void invalidateBaseline() { baseline = null; }
+
+    // What the kernel used since the previous sample; the new sample becomes the baseline
+    Sample advance(Sample now) {
+        Sample previous = baseline;
+        baseline = now;
+        return (previous == null || now == null) ? null : now.minus(previous);
+    }
+
+    // Clears the previous trip and returns the snippet that starts metering the current kernel thread
+    String armSnippet(ResourceBudget budget) {
+        clearBeacon();
+        return METER_CLASS + ".arm(" + budget.cpuTimeMs() * 1_000_000L + "L, "
+                + budget.allocatedBytes() + "L, \"" + escape(beacon) + "\", " + (++armId) + "L);";
+    }
+
+    // Path as the body of a Java string literal
+    private static String escape(Path path) {
+        return path.toAbsolutePath().toString().replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // Starts the memory watchdog of this session (old generation limit in percent of its max)
+    String watchMemorySnippet(int limitPercent, int strikes) {
+        clearMemoryTrip();
+        return METER_CLASS + ".watchMemory(" + limitPercent + ", " + strikes + ", \"" + escape(memoryBeacon) + "\");";
+    }
+
+    // Called when a cell starts: a trip from before belongs to nobody
+    void clearMemoryTrip() {
+        try {
+            Files.deleteIfExists(memoryBeacon);
+        } catch (IOException e) {
+            engine.warning(" Could not clear memory beacon " + memoryBeacon + ": " + e.getMessage());
+        }
+    }
+
+    // What the memory watchdog reported since clearMemoryTrip(), e.g. "G1 Old Gen at 93% of 4096 MB", or null
+    String memoryTripped() {
+        if (!Files.exists(memoryBeacon)) return null;
+        try {
+            String[] parts = Files.readString(memoryBeacon, StandardCharsets.UTF_8).trim().split(" ");
+            if (parts.length < 3) return null;
+            long used = Long.parseLong(parts[parts.length - 2]);
+            long max = Long.parseLong(parts[parts.length - 1]);
+            String pool = String.join(" ", java.util.Arrays.copyOf(parts, parts.length - 2));
+            return pool + " at " + (max > 0 ? used * 100 / max : 0) + "% of " + max / (1024 * 1024) + " MB";
+        } catch (IOException | NumberFormatException e) {
+            // file seen mid-write, the next poll reads it completely
+            return null;
+        }
+    }
+
+    // Starts the kernel thread that answers requestThreadDump()
+    String listenForDumpsSnippet() {
+        return METER_CLASS + ".listenForDumps(\"" + escape(dumpRequest) + "\", \"" + escape(dumpFile) + "\");";
+    }
+
+    // Stacks of every kernel thread, or null if the kernel didn't answer within timeoutMs.
+    // Needs no eval, so it works while a cell holds the kernel's execution thread.
+    String requestThreadDump(long timeoutMs) {
+        try {
+            Files.deleteIfExists(dumpFile);
+            Files.writeString(dumpRequest, "dump");
+        } catch (IOException e) {
+            engine.warning(" Could not request a kernel thread dump: " + e.getMessage());
+            return null;
+        }
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000;
+        try {
+            while (System.nanoTime() < deadline) {
+                if (Files.exists(dumpFile)) {
+                    return Files.readString(dumpFile, StandardCharsets.UTF_8);
+                }
+                Thread.sleep(DUMP_POLL_MS);
+            }
+            return null;
+        } catch (IOException e) {
+            engine.warning(" Could not read the kernel thread dump: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            clearDump();
+        }
+    }
+
+    String sampleSnippet() {
+        return METER_CLASS + ".sample()";
+    }
+
+    // Parses the value of sampleSnippet(), e.g. "\"1200000 4096 3 12 52428800 4294967296\""
+    Sample parseSample(String value) {
+        if (value == null) return null;
+        String[] parts = value.replace("\"", "").trim().split(" ");
+        if (parts.length != 6) return null;
+        try {
+            return new Sample(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Budget the kernel watcher reported as exceeded since the last arm, or null
+    ResourceBudget.Kind tripped() {
+        if (!Files.exists(beacon)) return null;
+        try {
+            String[] parts = Files.readString(beacon, StandardCharsets.UTF_8).trim().split(" ");
+            if (parts.length != 2 || Long.parseLong(parts[1]) != armId) return null;
+            return ResourceBudget.Kind.valueOf(parts[0]);
+        } catch (IOException | IllegalArgumentException e) {
+            // file seen mid-write, the next poll reads it completely
+            return null;
+        }
+    }
+
+    // Budget exceeded according to the cell's final usage (covers trips between two watcher polls)
+    static ResourceBudget.Kind exceeded(ResourceBudget budget, Sample usage) {
+        if (usage == null) return null;
+        if (budget.cpuTimeMs() > 0 && usage.cpuNanos() > budget.cpuTimeMs() * 1_000_000L) return ResourceBudget.Kind.CPU_TIME;
+        if (budget.allocatedBytes() > 0 && usage.allocatedBytes() > budget.allocatedBytes()) return ResourceBudget.Kind.ALLOCATION;
+        return null;
+    }
+
+    void close() {
+        clearBeacon();
+        clearMemoryTrip();
+        clearDump();
+    }
+
+    private void clearDump() {
+        try {
+            Files.deleteIfExists(dumpRequest);
+            Files.deleteIfExists(dumpFile);
+        } catch (IOException e) {
+            engine.warning(" Could not clear thread dump files " + dumpFile + ": " + e.getMessage());
+        }
+    }
+
+    private void clearBeacon() {
+        try {
+            Files.deleteIfExists(beacon);
+        } catch (IOException e) {
+            engine.warning(" Could not clear budget beacon " + beacon + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.vessel.Kernel;
+
+import com.vessel.core.log;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide kernel metrics: lock-free counters plus latency histograms for cell
+ * execution, single evals, queue wait, save and load.
+ *
+ * Every engine (and NotebookPersistence) records into the one global() instance, so a
+ * long-running Vessel with several notebooks still shows up as one set of numbers.
+ * Read it with snapshot(), or over JMX as "com.vessel:type=KernelMetrics".
+ */
+public final class KernelMetrics implements KernelMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.vessel:type=KernelMetrics";
+    private static volatile KernelMetrics global;
+
+    // Everything at one point in time
+    public record Snapshot(long executions, long failedExecutions, long budgetTrips, long evalCalls,
+                           long queueSubmitted, long queueCancelled,
+                           long saves, long saveFailures, long loads, long loadFailures,
+                           LatencyHistogram.Snapshot execution, LatencyHistogram.Snapshot eval,
+                           LatencyHistogram.Snapshot queueWait,
+                           LatencyHistogram.Snapshot save, LatencyHistogram.Snapshot load) {}
+
+    // === Counters ===
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder failedExecutions = new LongAdder();
+    private final LongAdder budgetTrips = new LongAdder();
+    private final LongAdder evalCalls = new LongAdder();
+    private final LongAdder queueSubmitted = new LongAdder();
+    private final LongAdder queueCancelled = new LongAdder();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder saveFailures = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    // === Histograms ===
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
+    private final LatencyHistogram evalLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    // === Loggers ===
+    private static final log metrics = log.get("engine");
+
+    // Lazily created and registered with the platform MBean server on first use
+    public static KernelMetrics global() {
+        if (global == null) {
+            synchronized (KernelMetrics.class) {
+                if (global == null) {
+                    KernelMetrics created = new KernelMetrics();
+                    register(created);
+                    global = created;
+                }
+            }
+        }
+        return global;
+    }
+
+    private static void register(KernelMetrics instance) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(instance, name);
+            }
+        } catch (Exception | LinkageError e) {
+            // metrics still work through snapshot(), only the JMX view is missing
+            metrics.warning(" Could not register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    // === Recording ===
+
+    public void recordExecution(long nanos, ExecutionResult result) {
+        executions.increment();
+        executionLatency.recordNanos(nanos);
+        if (result != null && !result.success()) failedExecutions.increment();
+        if (result != null && result.budgetExceeded() != null) budgetTrips.increment();
+    }
+
+    public void recordEval(long nanos) {
+        evalCalls.increment();
+        evalLatency.recordNanos(nanos);
+    }
+
+    public void recordQueued() { queueSubmitted.increment(); }
+    public void recordQueueCancelled() { queueCancelled.increment(); }
+    public void recordQueueWait(long nanos) { queueWait.recordNanos(nanos); }
+
+    public void recordSave(long nanos, boolean succeeded) {
+        saves.increment();
+        if (!succeeded) saveFailures.increment();
+        saveLatency.recordNanos(nanos);
+    }
+
+    public void recordLoad(long nanos, boolean succeeded) {
+        loads.increment();
+        if (!succeeded) loadFailures.increment();
+        loadLatency.recordNanos(nanos);
+    }
+
+    // === Snapshot API ===
+
+    public Snapshot snapshot() {
+        return new Snapshot(
+                executions.sum(), failedExecutions.sum(), budgetTrips.sum(), evalCalls.sum(),
+                queueSubmitted.sum(), queueCancelled.sum(),
+                saves.sum(), saveFailures.sum(), loads.sum(), loadFailures.sum(),
+                executionLatency.snapshot(), evalLatency.snapshot(), queueWait.snapshot(),
+                saveLatency.snapshot(), loadLatency.snapshot());
+    }
+
+    public LatencyHistogram.Snapshot executionLatency() { return executionLatency.snapshot(); }
+    public LatencyHistogram.Snapshot evalLatency() { return evalLatency.snapshot(); }
+    public LatencyHistogram.Snapshot queueWaitLatency() { return queueWait.snapshot(); }
+    public LatencyHistogram.Snapshot saveLatency() { return saveLatency.snapshot(); }
+    public LatencyHistogram.Snapshot loadLatency() { return loadLatency.snapshot(); }
+
+    // === KernelMetricsMXBean ===
+
+    @Override public long getExecutions() { return executions.sum(); }
+    @Override public long getFailedExecutions() { return failedExecutions.sum(); }
+    @Override public long getBudgetTrips() { return budgetTrips.sum(); }
+    @Override public long getEvalCalls() { return evalCalls.sum(); }
+    @Override public long getQueueSubmitted() { return queueSubmitted.sum(); }
+    @Override public long getQueueCancelled() { return queueCancelled.sum(); }
+    @Override public long getSaves() { return saves.sum(); }
+    @Override public long getSaveFailures() { return saveFailures.sum(); }
+    @Override public long getLoads() { return loads.sum(); }
+    @Override public long getLoadFailures() { return loadFailures.sum(); }
+
+    @Override public double getExecutionP50Ms() { return executionLatency.snapshot().p50Ms(); }
+    @Override public double getExecutionP99Ms() { return executionLatency.snapshot().p99Ms(); }
+    @Override public double getExecutionMaxMs() { return executionLatency.snapshot().maxMs(); }
+
+    @Override public double getEvalP50Ms() { return evalLatency.snapshot().p50Ms(); }
+    @Override public double getEvalP99Ms() { return evalLatency.snapshot().p99Ms(); }
+    @Override public double getEvalMaxMs() { return evalLatency.snapshot().maxMs(); }
+
+    @Override public double getQueueWaitP50Ms() { return queueWait.snapshot().p50Ms(); }
+    @Override public double getQueueWaitP99Ms() { return queueWait.snapshot().p99Ms(); }
+    @Override public double getQueueWaitMaxMs() { return queueWait.snapshot().maxMs(); }
+
+    @Override public double getSaveP50Ms() { return saveLatency.snapshot().p50Ms(); }
+    @Override public double getSaveP99Ms() { return saveLatency.snapshot().p99Ms(); }
+    @Override public double getSaveMaxMs() { return saveLatency.snapshot().maxMs(); }
+    @Override public double getLoadP50Ms() { return loadLatency.snapshot().p50Ms(); }
+    @Override public double getLoadP99Ms() { return loadLatency.snapshot().p99Ms(); }
+    @Override public double getLoadMaxMs() { return loadLatency.snapshot().maxMs(); }
+
+    @Override
+    public void reset() {
+        executions.reset();
+        failedExecutions.reset();
+        budgetTrips.reset();
+        evalCalls.reset();
+        queueSubmitted.reset();
+        queueCancelled.reset();
+        saves.reset();
+        saveFailures.reset();
+        loads.reset();
+        loadFailures.reset();
+        executionLatency.reset();
+        evalLatency.reset();
+        queueWait.reset();
+        saveLatency.reset();
+        loadLatency.reset();
+    }
+}
@@ -0,0 +1,47 @@
+package com.vessel.Kernel;
+
+/**
+ * JMX view of KernelMetrics, registered as "com.vessel:type=KernelMetrics".
+ * Open it in JConsole / VisualVM (MBeans tab) or scrape it with any local JMX agent.
+ * Latencies are in milliseconds.
+ */
+public interface KernelMetricsMXBean {
+
+    // === Counters ===
+    long getExecutions();
+    long getFailedExecutions();
+    long getBudgetTrips();
+    long getEvalCalls();
+    long getQueueSubmitted();
+    long getQueueCancelled();
+    long getSaves();
+    long getSaveFailures();
+    long getLoads();
+    long getLoadFailures();
+
+    // === Cell execution (whole cell, lock to result) ===
+    double getExecutionP50Ms();
+    double getExecutionP99Ms();
+    double getExecutionMaxMs();
+
+    // === Single jshell.eval call (compile + run of one unit) ===
+    double getEvalP50Ms();
+    double getEvalP99Ms();
+    double getEvalMaxMs();
+
+    // === Time a cell waited in the engine queue ===
+    double getQueueWaitP50Ms();
+    double getQueueWaitP99Ms();
+    double getQueueWaitMaxMs();
+
+    // === Notebook save / load ===
+    double getSaveP50Ms();
+    double getSaveP99Ms();
+    double getSaveMaxMs();
+    double getLoadP50Ms();
+    double getLoadP99Ms();
+    double getLoadMaxMs();
+
+    // Clears every counter and histogram
+    void reset();
+}
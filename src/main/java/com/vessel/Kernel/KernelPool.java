@@ -0,0 +1,176 @@
+package com.vessel.Kernel;
+import com.vessel.core.log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a small number of spare NotebookEngines booting / booted (remote JVM started,
+ * prelude and init snippets loaded) in the background.
+ *
+ * Restart / open / new notebook just take one out of the pool. A spare is handed out even
+ * while its kernel is still booting: the engine holds its first run until it is ready, so
+ * nobody waits on the UI thread. Whenever an engine is handed out, a replacement is queued.
+ * Boots run one at a time (each one launches a JVM).
+ */
+public class KernelPool {
+
+    // === Defaults ===
+    // Every pooled engine is a live remote JVM, so keep this small.
+    private static final int DEFAULT_POOL_SIZE = Integer.getInteger("vessel.kernel.pool.size", 1);
+    private static volatile KernelPool shared;
+
+    // === State ===
+    private final int targetSize;
+    private final KernelProfile profile = KernelProfile.appDefault(); // spares are launched with the app default
+    private final BlockingQueue<NotebookEngine> ready = new LinkedBlockingQueue<>(); // spares, booted or still booting
+    private final ExecutorService bootExecutor;
+    private volatile boolean closed = false;
+
+    // === Stats ===
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // === Loggers ===
+    private final log pool = log.get("engine");
+
+    // === Constructor ===
+
+    public KernelPool(int targetSize) {
+        this.targetSize = Math.max(0, targetSize);
+
+        // boots stay serial (each one launches a JVM); virtual threads never block JVM shutdown
+        bootExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("kernel-pool-boot").factory());
+
+        refill();
+        pool.info(" KernelPool created with target size " + this.targetSize);
+    }
+
+    // Lazily created pool shared by every notebook in this app instance
+    public static KernelPool getShared() {
+        if (shared == null) {
+            synchronized (KernelPool.class) {
+                if (shared == null) {
+                    shared = new KernelPool(DEFAULT_POOL_SIZE);
+                }
+            }
+        }
+        return shared;
+    }
+
+    // Shuts down the shared pool if it was ever created (called on app exit)
+    public static void shutdownShared() {
+        KernelPool current = shared;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    // Hands out a spare engine if there is one, otherwise a new one that boots in the background.
+    // Either way the call returns right away and a replacement is queued.
+    public NotebookEngine acquire() {
+        if (closed) {
+            throw new IllegalStateException("KernelPool is shut down");
+        }
+
+        NotebookEngine engine = ready.poll();
+        if (engine != null) {
+            hits.incrementAndGet();
+            pool.info(" Kernel pool hit (" + (engine.isReady() ? "booted" : "still booting") + ", " + ready.size() + " spare left)");
+        } else {
+            misses.incrementAndGet();
+            pool.warning(" Kernel pool miss, booting engine in the background");
+            engine = NotebookEngine.launch(profile);
+        }
+
+        refill();
+        return engine;
+    }
+
+    // Same as acquire() for the app default profile. A notebook with its own profile (e.g. a bigger heap)
+    // gets a new engine launched with it, the spares can't be reconfigured after their JVM started.
+    public NotebookEngine acquire(KernelProfile notebookProfile) {
+        KernelProfile wanted = KernelProfile.orDefault(notebookProfile);
+        if (wanted.equals(profile)) return acquire();
+        if (closed) {
+            throw new IllegalStateException("KernelPool is shut down");
+        }
+        misses.incrementAndGet();
+        pool.info(" Kernel with its own profile (" + wanted.describe() + "), booting in the background");
+        return NotebookEngine.launch(wanted);
+    }
+
+    // Tops the spares up to the target size; their kernels boot one after another on bootExecutor
+    private synchronized void refill() {
+        while (!closed && ready.size() < targetSize) {
+            NotebookEngine engine = new NotebookEngine(profile);
+            try {
+                bootExecutor.submit(() -> bootOne(engine));
+            } catch (RejectedExecutionException e) {
+                engine.shutdown();
+                return;
+            }
+            ready.offer(engine);
+        }
+    }
+
+    private void bootOne(NotebookEngine engine) {
+        if (closed) {
+            // pool was shut down before this boot got its turn
+            engine.shutdown();
+            return;
+        }
+        long start = System.nanoTime();
+        engine.boot();
+        if (engine.isReady()) {
+            pool.info(" Pre-warmed kernel ready in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } else {
+            pool.warning(" Failed to pre-warm kernel");
+        }
+    }
+
+    // Closes an engine that is no longer needed without blocking the caller.
+    // Engine shutdown waits on its executor and the remote JVM, which is too slow for the FX thread.
+    public void retire(NotebookEngine engine) {
+        if (engine == null) return;
+
+        Thread.ofVirtual().name("kernel-pool-retire").start(() -> {
+            if (engine.isExecuting()) {
+                engine.interrupt();
+            }
+            engine.shutdown();
+        });
+    }
+
+    public Map<String, Object> getStatistics() {
+        long h = hits.get();
+        long m = misses.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("targetSize", targetSize);
+        stats.put("ready", ready.size());
+        stats.put("booting", ready.stream().filter(engine -> !engine.isReady()).count());
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatePercent", String.format("%.1f", (h + m) > 0 ? h * 100.0 / (h + m) : 0.0));
+        return stats;
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    // Closes every idle engine and stops background boots
+    public void shutdown() {
+        closed = true;
+        // spares that haven't booted yet are shut down below, boot() then never starts them
+        bootExecutor.shutdown();
+
+        NotebookEngine engine;
+        while ((engine = ready.poll()) != null) {
+            engine.shutdown();
+        }
+        pool.info(" KernelPool shut down (hits=" + hits.get() + ", misses=" + misses.get() + ")");
+    }
+}
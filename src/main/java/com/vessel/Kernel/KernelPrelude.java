@@ -0,0 +1,87 @@
+package com.vessel.Kernel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The print / println / printf / now / rand helpers every notebook gets.
+ *
+ * This class is compiled with Vessel and loaded into the kernel JVM as is: the engine copies
+ * its class file onto the kernel's class path and evaluates one static import. That replaces
+ * ~30 helper snippets, each of which used to cost a javac compile at every kernel boot and
+ * reset. It must stay self-contained (JDK types only), nothing else of Vessel is on the
+ * kernel's class path.
+ */
+public final class KernelPrelude {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("EEEE");
+
+    private static Path classpathEntry; // host side only, see classpathEntry()
+
+    private KernelPrelude() {}
+
+    // Host side: a temp directory holding only this class file, for JShell.addToClasspath().
+    // Created once per app run and shared by every engine.
+    static synchronized Path classpathEntry() throws IOException {
+        if (classpathEntry != null) return classpathEntry;
+
+        Path root = Files.createTempDirectory("vessel-prelude-");
+        Path target = root.resolve(KernelPrelude.class.getName().replace('.', '/') + ".class");
+        Files.createDirectories(target.getParent());
+        try (InputStream in = KernelPrelude.class.getResourceAsStream(KernelPrelude.class.getSimpleName() + ".class")) {
+            if (in == null) throw new IOException("Class file of " + KernelPrelude.class.getName() + " not found");
+            Files.copy(in, target);
+        }
+        // deleteOnExit runs in reverse registration order: the file first, then its directories bottom-up
+        Path dir = root;
+        dir.toFile().deleteOnExit();
+        for (Path part : root.relativize(target.getParent())) {
+            dir = dir.resolve(part);
+            dir.toFile().deleteOnExit();
+        }
+        target.toFile().deleteOnExit();
+
+        classpathEntry = root;
+        return root;
+    }
+
+    public static void print(boolean b) { System.out.print(b); }
+    public static void print(char c) { System.out.print(c); }
+    public static void print(int i) { System.out.print(i); }
+    public static void print(long l) { System.out.print(l); }
+    public static void print(float f) { System.out.print(f); }
+    public static void print(double d) { System.out.print(d); }
+    public static void print(char[] s) { System.out.print(s); }
+    public static void print(int[] a) { System.out.print(a); }
+    public static void print(String s) { System.out.print(s); }
+    public static void print(Object obj) { System.out.print(obj); }
+
+    public static void println() { System.out.println(); }
+    public static void println(boolean b) { System.out.println(b); }
+    public static void println(char c) { System.out.println(c); }
+    public static void println(int i) { System.out.println(i); }
+    public static void println(long l) { System.out.println(l); }
+    public static void println(float f) { System.out.println(f); }
+    public static void println(double d) { System.out.println(d); }
+    public static void println(char[] s) { System.out.println(s); }
+    public static void println(String s) { System.out.println(s); }
+    public static void println(Object obj) { System.out.println(obj); }
+
+    public static void printf(Locale l, String format, Object... args) { System.out.printf(l, format, args); }
+    public static void printf(String format, Object... args) { System.out.printf(format, args); }
+
+    public static String now() { return LocalTime.now().format(TIME); }
+    public static String date() { return LocalDate.now().format(DATE); }
+    public static String day() { return LocalDate.now().format(DAY); }
+    public static String dateTime() { return "%s | %s | %s".formatted(day(), date(), now()); }
+    public static int rand(int min, int max) { return ThreadLocalRandom.current().nextInt(min, max + 1); }
+}
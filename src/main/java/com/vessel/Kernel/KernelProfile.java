@@ -0,0 +1,139 @@
+package com.vessel.Kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How a notebook's kernel is launched: heap size, garbage collector, extra JVM options and
+ * whether snippets run in a separate JVM at all.
+ *
+ * With the REMOTE engine (the default) every notebook gets its own kernel JVM, so a
+ * data-heavy notebook can have a 16 GB heap without the UI process growing with it. The
+ * LOCAL engine runs snippets inside the Vessel process: no JVM launch, but the heap and GC
+ * are the UI's own and the launch options below are ignored. It also runs every snippet on a
+ * new thread, so CPU / allocation budgets and the per-cell CPU / allocation / GC metrics need REMOTE.
+ *
+ * Stored per notebook (null = the app default, see {@link #appDefault()}), which comes from
+ * system properties:
+ *   vessel.kernel.heap.mb     max heap of the kernel JVM in MB (0 = JVM default)
+ *   vessel.kernel.gc          G1, ZGC, PARALLEL or SERIAL (unset = JVM default)
+ *   vessel.kernel.vm.options  extra kernel JVM options, space separated
+ *   vessel.kernel.engine      REMOTE or LOCAL
+ *   vessel.kernel.memory.limit.percent  old generation limit of the memory watchdog (default 90, 0 = off)
+ *
+ * @param maxHeapMb Max heap of the kernel JVM in MB, 0 = JVM default
+ * @param gc Garbage collector of the kernel JVM
+ * @param vmOptions Extra options for the kernel JVM, passed as is
+ * @param engine Where snippets run
+ * @param memoryLimitPercent Old generation use (after GC, in percent of its max) at which the
+ *                           running cell is stopped before the kernel runs out of memory, 0 = off
+ *                           (ignored by the LOCAL engine, whose heap is the UI's)
+ */
+public record KernelProfile(long maxHeapMb, GarbageCollector gc, List<String> vmOptions, Engine engine,
+                            int memoryLimitPercent) {
+
+    public static final int DEFAULT_MEMORY_LIMIT_PERCENT = 90;
+    public static final KernelProfile DEFAULT =
+            new KernelProfile(0, GarbageCollector.DEFAULT, List.of(), Engine.REMOTE, DEFAULT_MEMORY_LIMIT_PERCENT);
+
+    private static volatile KernelProfile appDefault;
+
+    public enum GarbageCollector {
+        DEFAULT(null),
+        G1("-XX:+UseG1GC"),
+        ZGC("-XX:+UseZGC"),
+        PARALLEL("-XX:+UseParallelGC"),
+        SERIAL("-XX:+UseSerialGC");
+
+        private final String option;
+
+        GarbageCollector(String option) {
+            this.option = option;
+        }
+
+        public String option() {
+            return option;
+        }
+    }
+
+    public enum Engine {
+        REMOTE, // separate kernel JVM over JDI (JShell's default)
+        LOCAL   // same JVM as Vessel
+    }
+
+    public KernelProfile {
+        if (maxHeapMb < 0) {
+            throw new IllegalArgumentException("maxHeapMb must be >= 0 (0 = JVM default)");
+        }
+        if (memoryLimitPercent < 0 || memoryLimitPercent > 100) {
+            throw new IllegalArgumentException("memoryLimitPercent must be between 0 and 100 (0 = off)");
+        }
+        // older notebook files and Gson leave these out
+        gc = gc != null ? gc : GarbageCollector.DEFAULT;
+        vmOptions = vmOptions != null ? List.copyOf(vmOptions) : List.of();
+        engine = engine != null ? engine : Engine.REMOTE;
+    }
+
+    // The profile for notebooks that don't set their own, read once from system properties
+    public static KernelProfile appDefault() {
+        if (appDefault == null) {
+            synchronized (KernelProfile.class) {
+                if (appDefault == null) {
+                    appDefault = fromSystemProperties();
+                }
+            }
+        }
+        return appDefault;
+    }
+
+    static KernelProfile fromSystemProperties() {
+        String options = System.getProperty("vessel.kernel.vm.options", "").trim();
+        return new KernelProfile(
+                Long.getLong("vessel.kernel.heap.mb", 0),
+                parse(GarbageCollector.class, System.getProperty("vessel.kernel.gc"), GarbageCollector.DEFAULT),
+                options.isEmpty() ? List.of() : Arrays.asList(options.split("\\s+")),
+                parse(Engine.class, System.getProperty("vessel.kernel.engine"), Engine.REMOTE),
+                Integer.getInteger("vessel.kernel.memory.limit.percent", DEFAULT_MEMORY_LIMIT_PERCENT));
+    }
+
+    // null (notebook without a profile of its own) -> the app default
+    public static KernelProfile orDefault(KernelProfile profile) {
+        return profile != null ? profile : appDefault();
+    }
+
+    public boolean isLocal() {
+        return engine == Engine.LOCAL;
+    }
+
+    // Launch options of the kernel JVM (JShell.Builder.remoteVMOptions), empty for the local engine
+    public String[] remoteVmOptions() {
+        if (isLocal()) return new String[0];
+        List<String> options = new ArrayList<>();
+        if (maxHeapMb > 0) options.add("-Xmx" + maxHeapMb + "m");
+        if (gc.option() != null) options.add(gc.option());
+        options.addAll(vmOptions);
+        return options.toArray(String[]::new);
+    }
+
+    // ExecutionControl spec for TimedExecutionControl
+    String executionSpec() {
+        return isLocal() ? TimedExecutionControl.LOCAL_SPEC : TimedExecutionControl.DEFAULT_SPEC;
+    }
+
+    // For logs and the Shell menu, e.g. "remote, -Xmx16384m -XX:+UseZGC, memory limit 90%"
+    public String describe() {
+        String options = String.join(" ", remoteVmOptions());
+        String launch = isLocal() ? "local (in-process)" : options.isEmpty() ? "remote, JVM defaults" : "remote, " + options;
+        return launch + (memoryLimitPercent > 0 && !isLocal() ? ", memory limit " + memoryLimitPercent + "%" : ", no memory limit");
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, E fallback) {
+        if (value == null || value.isBlank()) return fallback;
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -1,36 +1,112 @@
 package com.vessel.Kernel;
+import com.vessel.core.VesselRuntime;
 import com.vessel.core.log;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import com.vessel.model.CellType;
 import com.vessel.model.NotebookCell;
 import jdk.jshell.JShell;
 import jdk.jshell.SnippetEvent;
 
 public class NotebookEngine {
     // === Persistent Jshell ===
-    private final JShell jshell;
+    private volatile JShell jshell; // set by boot(), null until then
 
+    // === Boot ===
+    // kernel launched, prelude + meter loaded; replaced by a new one when a stuck cell costs the kernel
+    private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final AtomicBoolean bootStarted = new AtomicBoolean();
+    private volatile long kernelPid = -1; // of the kernel JVM, for killing it if it won't close
 
-    // Buffers
-    private ByteArrayOutputStream jshellBuffer;
-    private PrintStream jshellPrintStream;
+
+    // Output (captured for the result + streamed live to subscribers)
+    private final OutputChannel outputChannel;
 
     // === Thread-Safety ===
     private final ReentrantLock executionLock = new ReentrantLock(); // Locks the execution thread.
     private volatile boolean isExecuting = false;
 
-    // === Timeouts ===
-    private static final long EXECUTION_TIMEOUT_MS = 5_000; // 5s
-    private final ExecutorService executorService; // A Java thread-pool interface used to run tasks asynchronously.
+    // === Queue ===
+    private final BlockingQueue<QueuedExecution> executionQueue = new LinkedBlockingQueue<>();
+    private final Thread queueThread;
+    private volatile QueuedExecution runningItem;
+    private final Object runningGuard = new Object();
+    private volatile boolean shuttingDown = false;
+    private final AtomicLong submittedExecutions = new AtomicLong();
+    private final AtomicLong cancelledExecutions = new AtomicLong();
+    private final AtomicLong startedExecutions = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+    // === Snippet splitting (lexer-based, cached per cell text) ===
+    private final JavaSnippetSplitter snippetSplitter = new JavaSnippetSplitter();
+
+    // === Compile batching stats ===
+    private final AtomicLong snippetsEvaluated = new AtomicLong(); // statements/declarations sent to JShell
+    private final AtomicLong evalCalls = new AtomicLong();         // jshell.eval calls (= javac compiles)
+    private final AtomicLong compilesSaved = new AtomicLong();     // evals avoided by merging statements
+
+    // === Session metadata (copy-on-write, rebuilt after every execution) ===
+    private final AtomicReference<SessionSnapshot> session = new AtomicReference<>(SessionSnapshot.EMPTY);
+
+    // === Metrics (process-wide histograms, also exported over JMX) ===
+    private final KernelMetrics kernelMetrics = KernelMetrics.global();
+
+    // === Variable explorer ===
+    // Pages rendered in the kernel, keyed by "version:name:offset:limit"; cleared on every publish
+    private final VariableInspector variableInspector = new VariableInspector();
+    private final ConcurrentHashMap<String, CompletableFuture<VariablePage>> variablePages = new ConcurrentHashMap<>();
+
+    // === Session restore ===
+    private volatile SessionRestore activeRestore; // restore in progress, see restoreSession()
+
+    // === Dataflow ===
+    private final CellDependencyGraph dependencyGraph = new CellDependencyGraph();
+
+    // === Budgets ===
+    // Wall/CPU/allocation limits per cell; the notebook default applies where a cell sets none
+    private volatile ResourceBudget defaultBudget = ResourceBudget.DEFAULT;
+    private final KernelMeter kernelMeter = new KernelMeter();
+    private final AtomicLong kernelRunNanos = new AtomicLong(); // time spent in the kernel's invoke, see TimedExecutionControl
+    private static final long BUDGET_POLL_MS = 25; // how often a metered cell checks the kernel watcher
+    // GCs in a row that must end with the old generation over the limit before the memory watchdog trips
+    private static final int MEMORY_STRIKES = Integer.getInteger("vessel.kernel.memory.strikes", 2);
+    private volatile boolean memoryWatched = false; // watchdog running in the current session
+    private String memoryTrip; // what the watchdog reported for the cell being stopped (queue thread only)
+    private volatile boolean stopRequested = false;  // set by stop/interrupt, checked between eval units
+    private volatile long kernelHeapUsedBytes = -1;  // gauges from the kernel meter's last sample (the kernel JVM's heap)
+    private volatile long kernelHeapMaxBytes = -1;
+    private static final double MEMORY_WARNING_PERCENT = 65; // kernel heap use after a cell that earns a warning
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+    private final KernelProfile profile;       // how the kernel JVM is launched, fixed for the engine's lifetime
+    private final VesselRuntime.Scope runtime; // virtual threads for eval workers/queue/output, cancelled together on shutdown
+    private static final AtomicInteger ENGINE_IDS = new AtomicInteger();
+
+    // === Stuck cells (stop -> thread dump -> kernel swap, see stopWorker) ===
+    private static final long STOP_GRACE_MS = Long.getLong("vessel.kernel.stop.grace.ms", 2_000); // to return from jshell.eval
+    private static final long STOP_RETRY_MS = 100;
+    private static final long DUMP_TIMEOUT_MS = Long.getLong("vessel.kernel.dump.timeout.ms", 2_000); // for the kernel's thread dump
+    private static final long CLOSE_TIMEOUT_MS = Long.getLong("vessel.kernel.close.timeout.ms", 5_000); // before a replaced kernel is killed
+    private volatile Thread evalWorker; // thread of the cell currently in executeInternal
+    private final Set<Thread> abandonedWorkers = ConcurrentHashMap.newKeySet(); // still stuck in a replaced kernel
+    private final AtomicLong kernelReplacements = new AtomicLong();
 
     // === Loggers ===
     private final log engine = log.get("engine"); // looging
 
     // === Security ===
+    // Fallback rules if neither -Dvessel.policy.file nor the bundled execution-policy.txt can be read
     private static final List<String> DANGEROUS_PATTERNS = List.of(
             "System.exit",
             "Runtime.getRuntime().exec",
@@ -39,6 +115,10 @@ public class NotebookEngine {
             "sun.misc.Unsafe"
     );
 
+    // compiled once, shared by every engine (see ExecutionPolicy)
+    private static final ExecutionPolicy DEFAULT_POLICY = ExecutionPolicy.loadDefault(DANGEROUS_PATTERNS);
+    private volatile ExecutionPolicy executionPolicy = DEFAULT_POLICY;
+
     // === Stats ===
     private int totalExecutions = 0;
     private long totalExecutionTime = 0;
@@ -57,44 +137,13 @@ public class NotebookEngine {
 
     );
 
-    private static final List<String> METHOD_SNIPPETS = List.of(
-            "static void print(boolean b) { System.out.print(b); }",
-            "static void print(char c) { System.out.print(c); }",
-            "static void print(int i) { System.out.print(i); }",
-            "static void print(long l) { System.out.print(l); }",
-            "static void print(float f) { System.out.print(f); }",
-            "static void print(double d) { System.out.print(d); }",
-            "static void print(char s[]) { System.out.print(s); }",
-            "static void print(int a[]) { System.out.print(a); }",
-            "static void print(String s) { System.out.print(s); }",
-            "static void print(Object obj) { System.out.print(obj); }",
-            "static void println() { System.out.println(); }",
-            "static void println(boolean b) { System.out.println(b); }",
-            "static void println(char c) { System.out.println(c); }",
-            "static void println(int i) { System.out.println(i); }",
-            "static void println(long l) { System.out.println(l); }",
-            "static void println(float f) { System.out.println(f); }",
-            "static void println(double d) { System.out.println(d); }",
-            "static void println(char s[]) { System.out.println(s); }",
-            "static void println(String s) { System.out.println(s); }",
-            "static void println(Object obj) { System.out.println(obj); }",
-            "static void printf(java.util.Locale l, String format, Object... args) { System.out.printf(l, format, args); }",
-            "static void printf(String format, Object... args) { System.out.printf(format, args); }"
-    );
-
-    private static final List<String> EXTRA_SNIPPETS = List.of(
-            "static String now() { return java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern(\"HH:mm:ss\")); }",
-            "static String date() { return java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern(\"dd-MM-yyyy\")); }",
-            "static String day() { return java.time.LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern(\"EEEE\")); }",
-            "static String dateTime() { return \"%s | %s | %s\".formatted(day(), date(), now()); }",
-            "static int rand(int min, int max) { return java.util.concurrent.ThreadLocalRandom.current().nextInt(min, max + 1); }"
-    );
+    // print/println/printf/now/date/day/dateTime/rand: one class on the kernel's class path, see KernelPrelude
+    private static final String PRELUDE_IMPORT = "import static " + KernelPrelude.class.getName() + ".*;";
 
     private static final List<String> INIT_SNIPPETS = List.of(
-            // expands METHOD_SNIPPETS, IMPORT_SNIPPETS and EXTRA_SNIPPETS into one list
-            METHOD_SNIPPETS,
+            // expands IMPORT_SNIPPETS and the prelude import into one list
             IMPORT_SNIPPETS,
-            EXTRA_SNIPPETS
+            List.of(PRELUDE_IMPORT)
     ).stream().flatMap(List::stream).toList();
 
     private void loadInitSnippets(JShell jshell, List<String> INIT_SNIPPETS) {
@@ -110,79 +159,340 @@ public class NotebookEngine {
         }
     }
 
+    // Puts the compiled KernelPrelude on the kernel's class path (once per JShell, survives resets)
+    private void loadPrelude(JShell jshell) {
+        try {
+            jshell.addToClasspath(KernelPrelude.classpathEntry().toString());
+        } catch (IOException | RuntimeException e) {
+            engine.error(" Could not load the kernel prelude, print/println helpers are unavailable", e);
+        }
+    }
+
     // === Constructor ===
 
-    public NotebookEngine() {
+    // Engine with the app default kernel, booting in the background
+    public static NotebookEngine launch() {
+        return launch(KernelProfile.appDefault());
+    }
 
-        // Thread Safe executor for timeout handling
-        executorService = Executors.newCachedThreadPool(
-                r -> {
-                    Thread t = new Thread(r);
+    // Kernel launched with the given heap / GC / JVM options (or in-process), see KernelProfile.
+    // The kernel JVM launch + init evals take seconds, never make the caller (the FX thread) wait for them
+    public static NotebookEngine launch(KernelProfile profile) {
+        NotebookEngine notebookEngine = new NotebookEngine(profile);
+        notebookEngine.runtime.submit(notebookEngine::boot);
+        return notebookEngine;
+    }
 
-                    // Make the thread a daemon so it won't block JVM shutdown
-                    t.setDaemon(true);
+    // Leaves boot() to the caller (launch() or KernelPool, which boots its spares one at a time)
+    NotebookEngine(KernelProfile profile) {
+        this.profile = KernelProfile.orDefault(profile);
 
-                    // Give each thread a readable name based on the current cell
-                    t.setName("Jshell-Worker");
+        // Virtual-thread scope for everything this engine runs (eval workers, queue, output dispatch).
+        // Named per engine until a notebook claims it, see setNotebookName().
+        runtime = VesselRuntime.newScope("kernel-" + ENGINE_IDS.incrementAndGet());
 
-                    engine.severe(" Jshell thread started: " + "`" + t.getName() + "`");
-                    return t;
-                }
-        );
+        outputChannel = new OutputChannel(runtime);
+
+        // Start the single consumer of the execution queue; it holds work back until the kernel is ready
+        queueThread = runtime.startThread("queue", this::drainQueue);
+        engine.info(" NotebookEngine created, kernel not booted yet");
+    }
+
+    // Launches the kernel and loads prelude / init snippets / meter. Runs once, returns when ready or failed.
+    void boot() {
+        if (!bootStarted.compareAndSet(false, true)) return;
+        launchKernel(ready);
+    }
+
+    // Builds the JShell (and its kernel JVM) and completes whenReady. Used by boot() and replaceKernel().
+    private void launchKernel(CompletableFuture<Void> whenReady) {
+        long start = System.nanoTime();
+        try {
+            // Init. JShell with output streams; the timed execution control splits compile vs run time.
+            // The profile decides where snippets run and how the kernel JVM is launched (heap, GC, options)
+            JShell shell = JShell.builder()
+                    .out(outputChannel.stdout())
+                    .err(outputChannel.stderr())
+                    .executionEngine(TimedExecutionControl.provider(profile.executionSpec(), kernelRunNanos,
+                            outputChannel.stdout(), outputChannel.stderr()), null)
+                    .remoteVMOptions(profile.remoteVmOptions())
+                    .build();
+
+            executionLock.lock();
+            try {
+                jshell = shell;
+                kernelPid = readKernelPid();
+                loadPrelude(shell);
+                loadInitSnippets(shell, INIT_SNIPPETS);
+                defineKernelMeter();
+                publishSession();
+            } finally {
+                executionLock.unlock();
+            }
+
+            if (shuttingDown) {
+                // shut down while booting, shutdown() may have missed this JShell
+                shell.close();
+                whenReady.completeExceptionally(new IllegalStateException("NotebookEngine is shut down"));
+                return;
+            }
+            whenReady.complete(null);
+            engine.info(" Kernel ready in " + (System.nanoTime() - start) / 1_000_000 + " ms (" + profile.describe() + ")");
+        } catch (Throwable t) {
+            engine.error(" Kernel boot failed", t);
+            whenReady.completeExceptionally(t);
+        }
+    }
 
-        jshellBuffer = new ByteArrayOutputStream();
-         jshellPrintStream = new PrintStream(jshellBuffer, true); // autoflush
+    // Pid of the kernel JVM (this process for the local engine), -1 if unknown
+    private long readKernelPid() {
+        if (profile.isLocal()) return ProcessHandle.current().pid();
+        try {
+            String value = evalHidden("ProcessHandle.current().pid()");
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
-        // Init. JShell with output streams
-        this.jshell = JShell.builder()
-                .out(jshellPrintStream)
-                .err(jshellPrintStream)
-                .build();
+    // Completes once the kernel is booted (exceptionally if the boot failed or the engine was shut down first)
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
 
-        // Load Init Snippets
-        loadInitSnippets(jshell, INIT_SNIPPETS);
-        engine.info(" NotebookEngine initialized with persistent JShell kernel");
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
     }
 
+    // Blocks until the boot is over; throws CompletionException if it failed
+    private void awaitReady() {
+        ready.join();
+    }
 
 
-    // Thread safe execution.
+
+    // === Execution Queue ===
+
+    // Queues a cell for execution and returns immediately.
+    // Cells run one at a time in submission order on the queue thread; the future completes
+    // with the result (also stored on the cell). Cancelling the future drops a queued cell,
+    // or stops it if it is already running.
+    public CompletableFuture<ExecutionResult> submit(NotebookCell cell) {
+        CompletableFuture<ExecutionResult> future = new CompletableFuture<>();
+        QueuedExecution item = new QueuedExecution(future, () -> future.complete(runCell(cell)));
+
+        // while a session restore runs, a cell waits until its own definitions (and the ones above it) are back
+        SessionRestore restore = activeRestore;
+        if (restore != null && !restore.isReady(cell)) {
+            restore.whenReady(cell).thenRun(() -> enqueue(item));
+        } else {
+            enqueue(item);
+        }
+        return future;
+    }
+
+    // Queues a whole run (Run All / Run Below) as one queue item.
+    // Its CODE cells run back to back under a single lock acquisition, see runBatch().
+    public BatchExecution submitBatch(BatchExecution batch) {
+        CompletableFuture<List<ExecutionResult>> future = batch.getFuture();
+        enqueue(new QueuedExecution(future, () -> future.complete(runBatch(batch))));
+        return batch;
+    }
+
+    private void enqueue(QueuedExecution item) {
+        item.future.whenComplete((result, error) -> {
+            if (item.future.isCancelled()) {
+                cancelledExecutions.incrementAndGet();
+                kernelMetrics.recordQueueCancelled();
+                if (executionQueue.remove(item)) {
+                    engine.info(" Queued execution cancelled before it started");
+                } else {
+                    synchronized (runningGuard) {
+                        // only interrupt if this item is still the one running
+                        if (runningItem == item) {
+                            engine.warning(" Running execution cancelled");
+                            queueThread.interrupt();
+                        }
+                    }
+                }
+            }
+        });
+
+        if (shuttingDown) {
+            item.future.completeExceptionally(new IllegalStateException("NotebookEngine is shut down"));
+            return;
+        }
+
+        submittedExecutions.incrementAndGet();
+        kernelMetrics.recordQueued();
+        executionQueue.offer(item);
+        maxQueueDepth.accumulateAndGet(executionQueue.size(), Math::max);
+    }
+
+    // Blocking variant kept for callers that want to wait, fills cell.getExecutionResult().
     public Void execute(NotebookCell cell) {
+        try {
+            submit(cell).join();
+        } catch (CancellationException | CompletionException e) {
+            engine.warning(" Execution did not complete: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Single consumer: takes queued cells in FIFO order and runs them
+    private void drainQueue() {
+        while (!shuttingDown) {
+            QueuedExecution item;
+            try {
+                item = executionQueue.take();
+            } catch (InterruptedException e) {
+                if (shuttingDown) return;
+                continue; // a cancel raced with an empty queue, keep consuming
+            }
+            if (item.future.isDone()) continue; // cancelled while queued
+
+            // the first items may arrive while the kernel is still booting
+            try {
+                awaitReady();
+            } catch (CompletionException | CancellationException e) {
+                item.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+                continue;
+            }
+            if (item.future.isDone()) continue; // cancelled while the kernel booted
+
+            long waited = System.nanoTime() - item.enqueuedAt;
+            startedExecutions.incrementAndGet();
+            totalQueueWaitNanos.addAndGet(waited);
+            kernelMetrics.recordQueueWait(waited);
+            synchronized (runningGuard) {
+                runningItem = item;
+            }
+            try {
+                item.body.run();
+            } catch (Throwable t) {
+                item.future.completeExceptionally(t);
+            } finally {
+                lastActivityMillis = System.currentTimeMillis();
+                synchronized (runningGuard) {
+                    runningItem = null;
+                    // clear an interrupt left over from cancelling this item so the next take() works
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    // Runs one cell with the execution timeout. Called on the queue thread only.
+    private ExecutionResult runCell(NotebookCell cell) {
+        // Queue thread is the only executor, so this only waits on resets / introspection calls
+        executionLock.lock();
+        try {
+            return runLocked(cell);
+        } finally {
+            executionLock.unlock();
+            engine.debug(" Execution lock Released.");
+        }
+    }
+
+    // Runs a batch's CODE cells in order without releasing the lock in between
+    private List<ExecutionResult> runBatch(BatchExecution batch) {
+        List<ExecutionResult> results = new ArrayList<>();
+
+        executionLock.lock();
+        try {
+            engine.info(" Running batch of " + batch.getCells().size() + " cells");
+            for (NotebookCell cell : batch.getCells()) {
+                if (cell.getType() != CellType.CODE) continue;
+
+                try {
+                    batch.awaitIfPaused();
+                } catch (InterruptedException e) {
+                    break; // engine shutting down or batch cancelled while paused
+                }
+                if (batch.isCancelled() || shuttingDown) break;
+
+                batch.cellStarted(cell);
+                ExecutionResult result = runLocked(cell);
+                results.add(result);
+                batch.cellFinished(cell, result);
+
+                if (result.stopReport() != null && result.stopReport().kernelReplaced()) {
+                    // the session the remaining cells build on is gone, and the new kernel is still booting
+                    engine.warning(" Batch stopped, its kernel was replaced");
+                    break;
+                }
+                if (!result.success() && batch.isStopOnFailure()) {
+                    engine.info(" Batch stopped at first failing cell");
+                    break;
+                }
+            }
+        } finally {
+            executionLock.unlock();
+            engine.debug(" Execution lock Released.");
+        }
+        return results;
+    }
+
+    // Timeout-guarded execution of one cell. Caller must hold executionLock.
+    private ExecutionResult runLocked(NotebookCell cell) {
+        SessionRestore restore = activeRestore;
+        if (restore != null) restore.markExecuted(cell);
+
+        long start = System.nanoTime();
+        ExecutionResult result = runGuarded(cell);
+        kernelMetrics.recordExecution(System.nanoTime() - start, result);
+        if (isReady()) publishSession(); // else the kernel is being replaced, its launch publishes
+        return result;
+    }
+
+    private ExecutionResult runGuarded(NotebookCell cell) {
         String code = cell.getContent();
-        System.out.println(code);
 
     //  if code is null, return out of execution.
         if (code == null) {
-            cell.setExecutionResult(new ExecutionResult("", "", 0, true));
-            return null;
+            return finish(cell, new ExecutionResult("", "", 0, true));
         }
 
         // checking for any dangeorus pattern which may cause the program to crashout.
-        for (String pattern : DANGEROUS_PATTERNS) {
-            if (code.contains(pattern)) {
-                engine.warn(" Blocked dangerous pattern: " + pattern);
-
-                cell.setExecutionResult(new ExecutionResult("", "Blocked dangerous operation: " + pattern, -1, false));
-            }
+        // One pass over the code (comments/literals skipped); a hit stops the cell from running at all.
+        Optional<String> violation = executionPolicy.findViolation(code);
+        if (violation.isPresent()) {
+            engine.warn(" Blocked dangerous pattern: " + violation.get());
+            return finish(cell, new ExecutionResult("", "Blocked dangerous operation: " + violation.get(), -1, false));
         }
 
-        // Try to get the execution lock (non-blocking)
-        if (!executionLock.tryLock()) {
-            engine.warning(" Execution blocked: Another cell is running.");
-            cell.setExecutionResult(new ExecutionResult("", "Execution blocked: Another cell is running.\nPlease wait or interrupt it.", -1, false));
+        // The local engine runs every invoke on a new thread, which the kernel meter can't follow
+        ResourceBudget budget = budgetFor(cell);
+        if (profile.isLocal() && budget.needsMeter()) {
+            return finish(cell, new ExecutionResult("", "CPU and allocation budgets need the remote kernel: the LOCAL engine "
+                    + "runs each snippet on a new thread that can't be metered. Remove them from the cell / notebook budget "
+                    + "or switch the kernel profile to REMOTE.", -1, false));
         }
 
         try {
             isExecuting = true;
+            stopRequested = false;
             engine.info(" Executing code");
 
             // Submit execution with timeout
-            Future<ExecutionResult> future = executorService.submit(() -> executeInternal(code));
+            if (memoryWatched) kernelMeter.clearMemoryTrip();
+            long start = System.nanoTime();
+            Future<ExecutionResult> future = runtime.submit(() -> executeInternal(cell.getId(), code, budget));
 
             try {
 
-                // Wait for the task to finish, but only up to EXECUTION_TIMEOUT_MS
-                ExecutionResult result = future.get(EXECUTION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                // Wait for the task to finish, but stop it once it trips one of its budgets
+                ExecutionResult result = null;
+                while (result == null) {
+                    try {
+                        result = future.get(nextBudgetCheckMs(budget, start), TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        ResourceBudget.Kind tripped = trippedBudget(budget, start);
+                        if (tripped != null) {
+                            return finish(cell, stopOverBudget(future, budget, tripped, start));
+                        }
+                    }
+                }
 
                 // Updating Stats
                 totalExecutions++;
@@ -190,35 +500,18 @@ public class NotebookEngine {
                 //addToHistory(code, result);
 
                 engine.info(" Code Execution complete");
-                cell.setExecutionResult(result);
-
-            } catch (TimeoutException e) {
-
-                engine.debug(" Execution timed out.");
-
-                // Cancel the running task
-                future.cancel(true);
-
-                // Reset the JShell session
-                jshell.stop();
-
-                // Return a timeout result
-                cell.setExecutionResult(new ExecutionResult("", "TIMEOUT: Execution Exceeded " + (EXECUTION_TIMEOUT_MS / 1000) +
-                        " Possible infinite loop or recursion."
-                        , EXECUTION_TIMEOUT_MS, false));
+                return finish(cell, result);
 
             } catch (InterruptedException ie) {
 
-                // Cancel the running task
-                future.cancel(true);
+                // Stop whatever JShell is evaluating and let the worker wind down (or replace the kernel)
+                StopReport stop = stopWorker(future);
 
-                // Restore the interrupt status
-                Thread.currentThread().interrupt();
-
-                engine.error(" Execution interrupted", ie);
+                engine.warning(" Execution interrupted");
 
                 // Return an interrupted result
-                cell.setExecutionResult(new ExecutionResult("", "Execution interrupted by user", -1, false));
+                return finish(cell, new ExecutionResult("", "Execution interrupted by user" + describeStop(stop),
+                        -1, false, null, null, null, stop));
 
             } catch (ExecutionException e) {
                 engine.error(" Execution failed with exception: ", e);
@@ -228,56 +521,328 @@ public class NotebookEngine {
                 if (cause == null) cause = e;
 
                 // Return a fatal error result
-                cell.setExecutionResult(new ExecutionResult("", "FATAL ERROR: " + cause.getClass().getSimpleName() + ": " + cause.getMessage(), -1, false));
+                return finish(cell, new ExecutionResult("", "FATAL ERROR: " + cause.getClass().getSimpleName() + ": " + cause.getMessage(), -1, false));
             }
 
         } finally {
             isExecuting = false;
+        }
+    }
+
+    // === Session Restore ===
+
+    // Queues a background replay of the cells' declarations into this (fresh) kernel, see SessionRestore.
+    // Replaces a restore that is still running. Not queued through enqueue(): cancelling a restore must
+    // never interrupt the queue thread in the middle of an eval, it stops between snippets instead.
+    public SessionRestore restoreSession(SessionRestore restore) {
+        SessionRestore previous = activeRestore;
+        if (previous != null) previous.cancel();
+
+        activeRestore = restore;
+        restore.getFuture().whenComplete((ignored, error) -> {
+            restore.release();
+            if (activeRestore == restore) activeRestore = null;
+        });
+
+        if (shuttingDown) {
+            restore.getFuture().completeExceptionally(new IllegalStateException("NotebookEngine is shut down"));
+            return restore;
+        }
+        engine.info(" Restoring session from " + restore.getTotalCells() + " cells");
+        executionQueue.offer(new QueuedExecution(restore.getFuture(), () -> runRestore(restore)));
+        return restore;
+    }
+
+    // Replays the declarations of the restore's next cells. Steps aside (re-queues the rest) whenever
+    // other work is waiting, so cells the user runs don't wait for the whole notebook.
+    private void runRestore(SessionRestore restore) {
+        executionLock.lock();
+        try {
+            while (restore.hasNext()) {
+                if (restore.isCancelled() || shuttingDown) {
+                    restore.cancel();
+                    return;
+                }
+                NotebookCell cell = restore.next();
+                replayDeclarations(restore, cell);
+                restore.cellRestored();
+
+                if (restore.hasNext() && !executionQueue.isEmpty()) {
+                    publishSession();
+                    executionQueue.offer(new QueuedExecution(restore.getFuture(), () -> runRestore(restore)));
+                    return;
+                }
+            }
+            publishSession();
+            engine.info(" Session restored: " + restore.getReplayedSnippets() + " declarations replayed, "
+                    + restore.getSkippedSnippets() + " statements skipped, " + restore.getFailedSnippets() + " failed");
+            restore.getFuture().complete(null);
+        } finally {
             executionLock.unlock();
-            engine.debug(" Execution lock Released.");
         }
-        return null;
+    }
+
+    private void replayDeclarations(SessionRestore restore, NotebookCell cell) {
+        String code = cell.getContent();
+        if (cell.getType() != CellType.CODE || code == null || code.isBlank()) return;
+        if (restore.wasExecuted(cell)) return; // ran for real meanwhile
+        if (executionPolicy.findViolation(code).isPresent()) return; // blocked cells never run, not even partly
+
+        for (String snippet : snippetSplitter.split(code)) {
+            if (snippet.isBlank()) continue;
+            if (!DeclarationFilter.isReplayable(snippet)) {
+                restore.snippetSkipped();
+                continue;
+            }
+            boolean defined = false;
+            for (SnippetEvent event : timedEval(snippet)) {
+                if (event.causeSnippet() == null && event.exception() == null && event.status().isDefined()) {
+                    defined = true;
+                }
+            }
+            if (defined) {
+                restore.snippetReplayed();
+            } else {
+                restore.snippetFailed();
+            }
+        }
+    }
+
+    private ExecutionResult finish(NotebookCell cell, ExecutionResult result) {
+        ExecutionResult previous = cell.getExecutionResult();
+        cell.setExecutionResult(result);
+        deleteSpillFile(previous);
+        return result;
+    }
+
+    // The full output of a replaced result is no longer reachable, don't keep it on disk until exit
+    private void deleteSpillFile(ExecutionResult result) {
+        if (result == null || result.truncated() == null || !result.truncated().hasSpillFile()) return;
+        try {
+            Files.deleteIfExists(Path.of(result.truncated().spillPath()));
+        } catch (IOException | RuntimeException e) {
+            engine.warning(" Could not delete output spill file: " + e.getMessage());
+        }
+    }
+
+    // One queue item (single cell or batch) + the future handed back to the caller.
+    // body runs on the queue thread and completes the future itself.
+    private static final class QueuedExecution {
+        final CompletableFuture<?> future;
+        final Runnable body;
+        final long enqueuedAt = System.nanoTime();
+
+        QueuedExecution(CompletableFuture<?> future, Runnable body) {
+            this.future = future;
+            this.body = body;
+        }
+    }
+
+    // Cell override on top of the notebook default
+    private ResourceBudget budgetFor(NotebookCell cell) {
+        ResourceBudget fallback = defaultBudget;
+        return cell.getBudget() == null ? fallback : cell.getBudget().orElse(fallback);
+    }
+
+    // Wait slice for the next budget check: the kernel watcher poll for metered cells (and the memory
+    // watchdog, which every cell is under), else the rest of the wall time
+    private long nextBudgetCheckMs(ResourceBudget budget, long startNanos) {
+        long wait = budget.needsMeter() || memoryWatched ? BUDGET_POLL_MS : Long.MAX_VALUE;
+        if (budget.wallTimeMs() > 0) {
+            long remaining = budget.wallTimeMs() - (System.nanoTime() - startNanos) / 1_000_000;
+            wait = Math.min(wait, Math.max(1, remaining));
+        }
+        return wait;
+    }
+
+    private ResourceBudget.Kind trippedBudget(ResourceBudget budget, long startNanos) {
+        if (budget.wallTimeMs() > 0 && (System.nanoTime() - startNanos) / 1_000_000 >= budget.wallTimeMs()) {
+            return ResourceBudget.Kind.WALL_TIME;
+        }
+        if (memoryWatched) {
+            String memory = kernelMeter.memoryTripped();
+            if (memory != null) {
+                memoryTrip = memory;
+                return ResourceBudget.Kind.MEMORY;
+            }
+        }
+        return budget.needsMeter() ? kernelMeter.tripped() : null;
+    }
+
+    // Stops the running cell, escalating while it doesn't let go of the kernel:
+    //   1. jshell.stop(), repeated for STOP_GRACE_MS until the worker leaves jshell.eval (a stop that
+    //      lands while the next snippet is still compiling is a no-op in JShell)
+    //   2. a thread dump of the kernel (taken by a kernel thread of its own), DUMP_TIMEOUT_MS
+    //   3. kernel swap: the worker is abandoned and a fresh kernel boots, see replaceKernel()
+    // so the caller has an answer within STOP_GRACE_MS + DUMP_TIMEOUT_MS, and the next cell never
+    // talks to a kernel that an old eval is still reading its reply from.
+    // No future.cancel(true): interrupting a virtual thread blocked on the kernel socket closes it.
+    private StopReport stopWorker(Future<ExecutionResult> future) {
+        long start = System.nanoTime();
+        stopRequested = true;
+        while (elapsedMs(start) < STOP_GRACE_MS) {
+            jshell.stop();
+            if (awaitDone(future, Math.min(STOP_RETRY_MS, STOP_GRACE_MS - elapsedMs(start)))) {
+                return new StopReport(StopReport.Outcome.STOPPED, elapsedMs(start), null);
+            }
+        }
+
+        engine.warning(" Stopped cell did not finish within " + STOP_GRACE_MS + " ms, taking a kernel thread dump");
+        String dump = kernelMeter.requestThreadDump(DUMP_TIMEOUT_MS);
+        if (awaitDone(future, 0)) {
+            return new StopReport(StopReport.Outcome.STOPPED, elapsedMs(start), dump);
+        }
+
+        engine.severe(" Stopped cell is stuck" + (dump == null ? " and the kernel did not answer the thread dump" : "")
+                + ", replacing the kernel");
+        replaceKernel();
+        return new StopReport(StopReport.Outcome.KERNEL_REPLACED, elapsedMs(start), dump);
+    }
+
+    // True once the task is done, false if it is still running after timeoutMs
+    private static boolean awaitDone(Future<?> future, long timeoutMs) {
+        try {
+            future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return future.isDone();
+        } catch (ExecutionException | CancellationException ignored) {
+            // the stopped cell's own outcome is replaced by the caller's result
+            return true;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // Gives up on a kernel whose cell won't stop: the worker is abandoned (it can never eval again),
+    // the old JShell is closed in the background (the JVM killed if that hangs) and a fresh kernel
+    // boots. Queued cells wait for it like for the first boot. The session's definitions are lost.
+    // Caller holds executionLock.
+    private void replaceKernel() {
+        Thread worker = evalWorker;
+        if (worker != null) abandonedWorkers.add(worker);
+        JShell old = jshell;
+        long oldPid = kernelPid;
+        kernelReplacements.incrementAndGet();
+
+        CompletableFuture<Void> next = new CompletableFuture<>();
+        ready = next;
+        SessionRestore restore = activeRestore;
+        if (restore != null) restore.cancel();
+        dependencyGraph.clear();
+        kernelMeter.forget();
+        variableInspector.forget();
+        memoryWatched = false;
+        session.set(new SessionSnapshot(session.get().version() + 1, List.of(), List.of(), List.of(), List.of()));
+        variablePages.clear();
+
+        runtime.submit(() -> closeKernel(old, oldPid));
+        runtime.submit(() -> launchKernel(next));
+    }
+
+    // A JShell whose eval is stuck may not close cleanly; its JVM is killed after CLOSE_TIMEOUT_MS.
+    // The local engine has no JVM of its own to kill, its stuck thread stays behind.
+    private void closeKernel(JShell old, long pid) {
+        if (awaitDone(runtime.submit(old::close), CLOSE_TIMEOUT_MS)) {
+            engine.info(" Replaced kernel closed");
+        } else if (!profile.isLocal() && pid > 0) {
+            engine.warning(" Replaced kernel did not close within " + CLOSE_TIMEOUT_MS + " ms, killing pid " + pid);
+            ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        } else {
+            engine.warning(" Replaced kernel did not close within " + CLOSE_TIMEOUT_MS + " ms");
+        }
+    }
+
+    // Appended to the error of a stopped cell: what the stop cost, and the kernel's stacks if it got stuck
+    private static String describeStop(StopReport stop) {
+        if (!stop.kernelReplaced()) return "";
+        StringBuilder text = new StringBuilder()
+                .append("\nKERNEL REPLACED: the cell did not stop within ").append(STOP_GRACE_MS)
+                .append(" ms, so it was abandoned and a fresh kernel started (variables and definitions are gone,")
+                .append(" re-run the cells you need).");
+        if (stop.hasThreadDump()) {
+            text.append("\n\nKernel threads when it was abandoned:\n").append(stop.threadDump());
+        }
+        return text.toString();
+    }
+
+    private ExecutionResult stopOverBudget(Future<ExecutionResult> future, ResourceBudget budget,
+                                           ResourceBudget.Kind tripped, long startNanos) {
+        engine.warning(" Cell exceeded its " + budget.describe(tripped) + " budget, stopping it");
+
+        // Stop whatever JShell is evaluating and let the worker wind down (or replace the kernel)
+        StopReport stop = stopWorker(future);
+
+        String message = switch (tripped) {
+            case WALL_TIME -> "TIMEOUT: Execution exceeded " + budget.describe(tripped) + ". Possible infinite loop or recursion.";
+            case MEMORY -> "MEMORY BUDGET EXCEEDED: the kernel's " + memoryTrip + " after garbage collection (limit "
+                    + profile.memoryLimitPercent() + "%). The cell was stopped"
+                    + " before running out of memory, the session is kept; free large variables (e.g. x = null) or"
+                    + " raise the heap in Shell > Kernel Profile.";
+            default -> "BUDGET EXCEEDED: Execution exceeded " + budget.describe(tripped) + " and was stopped.";
+        };
+        return new ExecutionResult("", message + describeStop(stop), elapsedMs(startNanos), false, null, tripped, null, stop);
     }
 
     // Internal Execution (Runs in executor thread)
-    private ExecutionResult executeInternal(String code) {
+    private ExecutionResult executeInternal(String cellId, String code, ResourceBudget budget) {
+        evalWorker = Thread.currentThread();
+        try {
+            return executeCell(cellId, code, budget);
+        } finally {
+            evalWorker = null;
+            abandonedWorkers.remove(Thread.currentThread());
+        }
+    }
+
+    private ExecutionResult executeCell(String cellId, String code, ResourceBudget budget) {
         // Start timer
         long startTime = System.nanoTime();
 
         // Clear the persistent buffer before running new code
-        jshellBuffer.reset();
+        outputChannel.begin(cellId);
 
         // Output builder and success flag
         StringBuilder output = new StringBuilder();
         StringBuilder errors = new StringBuilder();
         final boolean[] success = {true};
+        TruncatedOutput truncated = null;
+        ResourceBudget.Kind overBudget = null;
+        ExecutionMetrics metrics = null;
 
         try {
-            // Check memory usage
-            Runtime runtime = Runtime.getRuntime();
-            long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-            long maxMemory = runtime.maxMemory();
-            double memoryUserPercentage = (usedMemory * 100.0 / maxMemory);
-
-            if (memoryUserPercentage > 65) {
-                engine.warning(" Memory usage high");
-                errors.append(" Warning: Memory Usage at ")
-                        .append(String.format("%.1f", memoryUserPercentage))
-                        .append("%\n\n");
-            }
             // Split code into JShell snippets, but keep class/method bodies together
-            List<String> snippets = splitIntoSnippets(code);
+            List<String> snippets = snippetSplitter.split(code);
 
 // list will accumulate all events from all snippets
             List<SnippetEvent> events = new ArrayList<>();
             boolean currentSuccess = true;
 
-            for (String snippetCode : snippets) {
-                String trimmed = snippetCode.trim();
-                if (trimmed.isBlank()) continue;
+            // Kernel counters of the previous cell are this cell's baseline; re-sample if that one was stopped
+            if (!kernelMeter.hasBaseline()) {
+                kernelMeter.setBaseline(sampleKernel());
+            }
+            // CPU / allocation budgets are watched on the kernel thread from here on
+            if (budget.needsMeter()) {
+                armBudget(budget);
+            }
+
+            long evalsBefore = evalCalls.get();
+            long runNanosBefore = kernelRunNanos.get();
+            long evalStart = System.nanoTime();
+
+            // Consecutive plain statements become one block -> one compile instead of one per statement
+            for (SnippetBatcher.EvalUnit unit : SnippetBatcher.batch(snippets)) {
+                // stopped (budget tripped / user interrupt): don't start the remaining snippets
+                if (stopRequested) break;
 
                 // Execute JShell snippet sequentially
-                List<SnippetEvent> statementEvents = jshell.eval(snippetCode);
+                List<SnippetEvent> statementEvents = evalUnit(unit);
                 events.addAll(statementEvents);
 
                 // Check for errors on this snippet
@@ -289,6 +854,42 @@ public class NotebookEngine {
             }
 
             success[0] = currentSuccess;
+            checkNotAbandoned(); // its kernel was replaced: the rest would read the new kernel's state
+
+            long evalNanos = System.nanoTime() - evalStart;
+            long runNanos = kernelRunNanos.get() - runNanosBefore;
+            int cellEvals = (int) (evalCalls.get() - evalsBefore);
+
+            // Closing sample: what the kernel thread used for this cell (skipped if the cell was stopped).
+            // The local engine's snippets ran on threads that are gone by now, and its GC is the UI's:
+            // only the heap gauges mean something there, the cell's counters stay unavailable (-1)
+            KernelMeter.Sample usage = null;
+            KernelMeter.Sample sample = null;
+            if (stopRequested) {
+                kernelMeter.invalidateBaseline();
+            } else {
+                sample = sampleKernel();
+                if (!profile.isLocal()) usage = kernelMeter.advance(sample);
+            }
+
+            // Memory pressure of the JVM the cell ran in (the kernel's heap, not the UI's)
+            double heapPercent = getKernelHeapUsagePercent();
+            if (sample != null && heapPercent > MEMORY_WARNING_PERCENT) {
+                engine.warning(" Kernel memory usage high");
+                errors.append(" Warning: Kernel memory usage at ")
+                        .append(String.format("%.1f", heapPercent))
+                        .append("% of ").append(kernelHeapMaxBytes / (1024 * 1024)).append(" MB\n\n");
+            }
+
+            // Final measurement also catches a limit crossed between two watcher polls
+            if (budget.needsMeter()) {
+                overBudget = KernelMeter.exceeded(budget, usage);
+                if (overBudget != null) {
+                    errors.append(" BUDGET EXCEEDED: Execution used more than ")
+                            .append(budget.describe(overBudget)).append("\n");
+                    success[0] = false;
+                }
+            }
             System.out.println("events.size() = " + events.size());
 
             if (events.isEmpty()) {
@@ -344,10 +945,25 @@ public class NotebookEngine {
                 }
             }
 
+            // Remember what this cell defines / uses for Run Stale
+            dependencyGraph.recordExecution(cellId, code, success[0], events, jshell.sourceCodeAnalysis());
+
             // Capture STDOUT
-            // Force flushing just to be safe. (even though auto-flush is set true on init.)
-            jshellPrintStream.flush();
-            String printed = jshellBuffer.toString();
+            // captured() flushes both streams first, so nothing still sitting in a chunk is lost
+            OutputCapture.Captured captured = outputChannel.captured();
+            String printed = captured.text();
+            truncated = captured.truncated();
+
+            metrics = new ExecutionMetrics(
+                    Math.max(0, evalNanos - runNanos) / 1_000_000,
+                    runNanos / 1_000_000,
+                    usage != null ? usage.cpuNanos() / 1_000_000 : -1,
+                    usage != null ? usage.allocatedBytes() : -1,
+                    usage != null ? usage.gcCount() : -1,
+                    usage != null ? usage.gcMillis() : -1,
+                    snippets.size(),
+                    cellEvals,
+                    captured.totalBytes());
 
             if (!printed.isEmpty()) {
                 output.append(printed);
@@ -362,8 +978,8 @@ public class NotebookEngine {
                     .append("The kernel will be reset.\n");
             success[0] = false;
 
-            // Reset kernel async
-            CompletableFuture.runAsync(this::resetKernel);
+            // Reset kernel async, on this engine's scope so shutdown() cancels it with everything else
+            runtime.submit(this::resetKernel);
 
         } catch (StackOverflowError e) {
             // Stack overflow handler
@@ -390,11 +1006,151 @@ public class NotebookEngine {
                 .append(executionTime).append(" ms\n");
 
         // Return result
-        return new ExecutionResult(output.toString(), errors.toString(), executionTime, success[0]);
+        return new ExecutionResult(output.toString(), errors.toString(), executionTime, success[0], truncated, overBudget, metrics);
+    }
+
+    // Cells that need to re-run after edits: edited/failed/never-run cells plus everything downstream
+    // of the names they define. Pass the notebook's CODE cells in order.
+    public List<NotebookCell> getStaleCells(List<NotebookCell> orderedCells) {
+        return dependencyGraph.staleCells(orderedCells);
+    }
+
+    // The cell was removed from the notebook; drops what the dependency graph knows about it
+    public void forgetCell(String cellId) {
+        dependencyGraph.forget(cellId);
+    }
+
+    // Live output: receives stdout/stderr chunks while cells run (on a background thread).
+    // Run the returned handle to unsubscribe.
+    public Runnable subscribeOutput(Consumer<OutputChunk> subscriber) {
+        return outputChannel.subscribe(subscriber);
+    }
+
+    // Budget used for every cell that doesn't set its own (null restores ResourceBudget.DEFAULT)
+    public void setDefaultBudget(ResourceBudget budget) {
+        this.defaultBudget = budget == null ? ResourceBudget.DEFAULT : budget;
+    }
+
+    public ResourceBudget getDefaultBudget() {
+        return defaultBudget;
+    }
+
+    // Replaces the blocked-pattern rules for this engine (e.g. ExecutionPolicy.fromFile(...))
+    public void setExecutionPolicy(ExecutionPolicy policy) {
+        this.executionPolicy = policy;
+    }
+
+    // How much output is kept in memory per execution (head/tail + optional disk spill)
+    public void setOutputCapturePolicy(OutputCapturePolicy policy) {
+        outputChannel.setCapturePolicy(policy);
+    }
+
+    // Defines the kernel-side meter for this JShell session and takes the first baseline.
+    // Runs at boot (inside the kernel pool) and after a reset, so cells never pay for the class compile.
+    private void defineKernelMeter() {
+        boolean defined = jshell.eval(kernelMeter.defineSnippet()).stream()
+                .anyMatch(e -> e.status().isDefined());
+        if (!defined) {
+            engine.warning(" Could not define the kernel meter, CPU/allocation metrics and budgets are off");
+            return;
+        }
+        kernelMeter.markDefined();
+        kernelMeter.setBaseline(sampleKernel());
+        watchMemory();
+        if (evalHidden(kernelMeter.listenForDumpsSnippet()) == null) {
+            engine.warning(" Could not start the kernel thread dump listener, stuck cells are replaced without a dump");
+        }
+    }
+
+    // Memory watchdog of the session: GC listener + old generation threshold in the kernel, see KernelMeter.
+    // Not for the local engine: its thresholds and forced GCs would land on the UI's own heap
+    private void watchMemory() {
+        memoryWatched = false;
+        if (profile.memoryLimitPercent() <= 0 || profile.isLocal()) return;
+        memoryWatched = evalHidden(kernelMeter.watchMemorySnippet(profile.memoryLimitPercent(), MEMORY_STRIKES)) != null;
+        if (!memoryWatched) {
+            engine.warning(" Could not start the kernel memory watchdog, cells may run into OutOfMemoryError");
+        }
+    }
+
+    private void armBudget(ResourceBudget budget) {
+        if (!kernelMeter.isDefined() || evalHidden(kernelMeter.armSnippet(budget)) == null) {
+            engine.warning(" Budget meter not available, only the wall time budget applies");
+        }
+    }
+
+    private KernelMeter.Sample sampleKernel() {
+        if (!kernelMeter.isDefined()) return null;
+        KernelMeter.Sample sample = kernelMeter.parseSample(evalHidden(kernelMeter.sampleSnippet()));
+        if (sample != null) {
+            kernelHeapUsedBytes = sample.heapUsedBytes();
+            kernelHeapMaxBytes = sample.heapMaxBytes();
+        }
+        return sample;
+    }
+
+    // Evaluates a helper snippet and drops it again so it never shows up as a user variable ($N) or snippet.
+    // Returns the snippet's value ("" for statements), or null if it failed.
+    private String evalHidden(String source) {
+        checkNotAbandoned();
+        String value = null;
+        for (SnippetEvent event : jshell.eval(source)) {
+            if (event.causeSnippet() != null) continue;
+            if (event.exception() == null && event.status() == jdk.jshell.Snippet.Status.VALID) {
+                value = event.value() == null ? "" : event.value();
+            }
+            jshell.drop(event.snippet());
+        }
+        return value;
+    }
+
+    // Evaluates one unit. A merged block that doesn't compile (classifier was wrong, or one of
+    // the statements has an error) is retried piece by piece so diagnostics point at the right
+    // statement. Nothing in a rejected block has run, so the retry can't repeat side effects.
+    private List<SnippetEvent> evalUnit(SnippetBatcher.EvalUnit unit) {
+        snippetsEvaluated.addAndGet(unit.parts().size());
+        List<SnippetEvent> unitEvents = timedEval(unit.code());
+
+        if (!unit.isMerged()) return unitEvents;
+
+        boolean rejected = unitEvents.stream()
+                .anyMatch(event -> event.status() == jdk.jshell.Snippet.Status.REJECTED);
+        if (!rejected) {
+            compilesSaved.addAndGet(unit.parts().size() - 1);
+            return unitEvents;
+        }
+
+        engine.debug(" Merged block rejected, evaluating " + unit.parts().size() + " statements separately");
+        List<SnippetEvent> partEvents = new ArrayList<>();
+        for (String part : unit.parts()) {
+            partEvents.addAll(timedEval(part));
+        }
+        return partEvents;
+    }
+
+    // One jshell.eval (= one javac compile + run) of user code, counted and timed
+    private List<SnippetEvent> timedEval(String source) {
+        checkNotAbandoned();
+        evalCalls.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return jshell.eval(source);
+        } finally {
+            kernelMetrics.recordEval(System.nanoTime() - start);
+        }
+    }
+
+    // A worker abandoned by replaceKernel() that finally came back must not touch the new kernel
+    private void checkNotAbandoned() {
+        if (abandonedWorkers.contains(Thread.currentThread())) {
+            throw new IllegalStateException("Kernel was replaced while this cell was stuck");
+        }
     }
 
     // Clears Kernel, Useful for 'Restart Kernel' button in front end.
     public void resetKernel() {
+        awaitReady();
+
         // Lock to prevent concurrent resets/executions
         executionLock.lock();
 
@@ -408,6 +1164,13 @@ public class NotebookEngine {
             loadInitSnippets(jshell, INIT_SNIPPETS);
 
             // Clear stats and history
+            dependencyGraph.clear();
+            SessionRestore restore = activeRestore;
+            if (restore != null) restore.cancel(); // its replays were just dropped
+            kernelMeter.forget();
+            variableInspector.forget();
+            defineKernelMeter();
+            publishSession();
             totalExecutions = 0;
             totalExecutionTime = 0;
 
@@ -426,7 +1189,8 @@ public class NotebookEngine {
         // Check if a cell is currently executing
         if (isExecuting) {
 
-            // Stop the JShell session
+            // Stop the JShell session and skip the cell's remaining snippets
+            stopRequested = true;
             jshell.stop();
 
             // Log interruption
@@ -440,120 +1204,169 @@ public class NotebookEngine {
     }
 
 
+    // Getters.
+    // Imports / methods / variables come from the published session snapshot, so they never wait on a running cell
+    public List<String> getImports() {
+        return session.get().imports();
+    }
+
+    public List<String> getMethods() {
+        return session.get().methods();
+    }
+
+    // "name : type" per variable. Values need a kernel round trip each, see inspectVariable()
     public List<String> getVariables() {
-        executionLock.lock();
-        try {
-            return jshell.variables()
-                    .map(v -> v.name() + " : " + v.typeName() + " = " +
-                            (v.typeName().equals("String") ? ("\"" + jshell.varValue(v).describeConstable().orElse("null") + "\"") :
-                                    jshell.varValue(v).describeConstable().orElse("null"))
-                    ).toList();
-        } finally {
-            executionLock.unlock();
-        }
+        return session.get().variables().stream()
+                .map(v -> v.name() + " : " + v.typeName())
+                .toList();
     }
 
+    // Latest published session metadata (lock-free; diff two of them for incremental updates)
+    public SessionSnapshot getSession() {
+        return session.get();
+    }
 
-    // Getters.
-    public List<String> getImports() {
-        executionLock.lock();
-        try {
-            return jshell.imports()
-                    .map(i -> i.fullname())
-                    .toList();
-        } finally {
-            executionLock.unlock();
+    // Rebuilds the session snapshot from JShell's current state. Caller must hold executionLock.
+    private void publishSession() {
+        List<SessionSnapshot.Variable> variables = jshell.variables()
+                .map(v -> new SessionSnapshot.Variable(v.name(), v.typeName(), v.source()))
+                .toList();
+        List<String> methods = jshell.methods()
+                .map(m -> m.signature() + " " + m.name() + "(" + m.parameterTypes() + ")")
+                .toList();
+        List<String> imports = jshell.imports()
+                .map(i -> i.fullname())
+                .toList();
+        List<String> types = jshell.types()
+                .map(t -> t.name())
+                .filter(name -> !kernelMeter.isHelperType(name) && !variableInspector.isHelperType(name))
+                .toList();
+
+        SessionSnapshot previous = session.get();
+        session.set(new SessionSnapshot(previous.version() + 1, variables, methods, imports, types));
+        variablePages.clear();
+    }
+
+    // One page of a variable's value for the variable explorer, rendered in the kernel on a background
+    // thread. Names and types are in getSession() already; this is only for the value. The same page is
+    // served from cache until the next execution publishes a new session version.
+    public CompletableFuture<VariablePage> inspectVariable(String name, int offset, int limit) {
+        SessionSnapshot snapshot = session.get();
+        SessionSnapshot.Variable variable = snapshot.variable(name);
+        if (variable == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown variable: " + name));
         }
+        int from = Math.max(0, offset);
+        int count = Math.max(1, limit);
+        String key = snapshot.version() + ":" + name + ":" + from + ":" + count;
+
+        CompletableFuture<VariablePage> page = variablePages.computeIfAbsent(key, k -> {
+            CompletableFuture<VariablePage> pending = new CompletableFuture<>();
+            runtime.submit(() -> {
+                try {
+                    pending.complete(renderVariable(variable, snapshot.version(), from, count));
+                } catch (Throwable t) {
+                    pending.completeExceptionally(t);
+                }
+            });
+            return pending;
+        });
+        // failures (variable dropped meanwhile, kernel busy being reset) are retried on the next call
+        page.whenComplete((result, error) -> {
+            if (error != null) variablePages.remove(key, page);
+        });
+        return page;
     }
 
-    public List<String> getMethods() {
+    // Waits behind any running cell: the kernel runs one eval at a time anyway
+    private VariablePage renderVariable(SessionSnapshot.Variable variable, long generation, int offset, int limit) {
+        awaitReady();
         executionLock.lock();
         try {
-            return jshell.methods()
-                    .map(m -> m.signature() + " " + m.name() + "(" + m.parameterTypes() + ")")
-                    .toList();
+            if (session.get().variable(variable.name()) == null) {
+                throw new IllegalStateException("Variable " + variable.name() + " no longer exists");
+            }
+            if (!variableInspector.isDefined()) {
+                boolean defined = jshell.eval(variableInspector.defineSnippet()).stream()
+                        .anyMatch(e -> e.status().isDefined());
+                if (!defined) throw new IllegalStateException("Could not define the variable inspector");
+                variableInspector.markDefined();
+            }
+            VariableInspector.Rendered rendered =
+                    variableInspector.parse(evalHidden(variableInspector.renderSnippet(variable.name(), offset, limit)));
+            if (rendered == null) {
+                throw new IllegalStateException("Could not render " + variable.name());
+            }
+            return new VariablePage(variable.name(), variable.typeName(), generation,
+                    rendered.kind(), rendered.size(), offset, rendered.items());
         } finally {
             executionLock.unlock();
         }
     }
 
     public Map<String, Object> getStatistics() {
-        Runtime runtime = Runtime.getRuntime();
-        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-        long maxMemory = runtime.maxMemory();
-
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalExecutions", totalExecutions);
         stats.put("averageExecutionTimeMs", totalExecutions > 0 ? totalExecutionTime / totalExecutions : 0);
         stats.put("totalExecutionTime", totalExecutionTime);
-        stats.put("variableCount", getVariables().size());
-        stats.put("methodCount", getMethods().size());
-        stats.put("importsCount", getImports().size());
-        stats.put("classCount", jshell.types().count());
+        // counts from the session snapshot: no lock, no varValue round trips
+        SessionSnapshot current = session.get();
+        stats.put("sessionVersion", current.version());
+        stats.put("variableCount", current.variables().size());
+        stats.put("methodCount", current.methods().size());
+        stats.put("importsCount", current.imports().size());
+        stats.put("classCount", current.types().size());
         stats.put("isExecuting", isExecuting);
-        stats.put("memoryTotalMB", usedMemory / 1024 / 1024);
-        stats.put("memoryUsedMB", usedMemory / 1024 / 1024);
-        stats.put("memoryMaxMB", maxMemory / 1024 / 1024);
-        stats.put("memoryUsagePercent", String.format("%.1f", (usedMemory * 100.0 / maxMemory)));
+        stats.put("snippetsEvaluated", snippetsEvaluated.get());
+        stats.put("evalCalls", evalCalls.get());
+        stats.put("compilesSaved", compilesSaved.get());
+        stats.put("splitCacheHits", snippetSplitter.getCacheHits());
+        stats.put("splitCacheMisses", snippetSplitter.getCacheMisses());
+        stats.put("queueDepth", executionQueue.size());
+        stats.put("queueMaxDepth", maxQueueDepth.get());
+        stats.put("queueSubmitted", submittedExecutions.get());
+        stats.put("queueCancelled", cancelledExecutions.get());
+        stats.put("kernelReplacements", kernelReplacements.get());
+        stats.put("averageQueueWaitMs", startedExecutions.get() > 0 ? totalQueueWaitNanos.get() / 1_000_000 / startedExecutions.get() : 0);
+
+        // Tail latencies across all engines in this process (see KernelMetrics)
+        LatencyHistogram.Snapshot execution = kernelMetrics.executionLatency();
+        LatencyHistogram.Snapshot queueWait = kernelMetrics.queueWaitLatency();
+        stats.put("executionP50Ms", execution.p50Ms());
+        stats.put("executionP99Ms", execution.p99Ms());
+        stats.put("executionMaxMs", execution.maxMs());
+        stats.put("queueWaitP99Ms", queueWait.p99Ms());
+
+        // Kernel JVM heap as of the last sample (-1 before the first one)
+        stats.put("kernelProfile", profile.describe());
+        stats.put("memoryUsedMB", kernelHeapUsedBytes < 0 ? -1 : kernelHeapUsedBytes / 1024 / 1024);
+        stats.put("memoryMaxMB", kernelHeapMaxBytes < 0 ? -1 : kernelHeapMaxBytes / 1024 / 1024);
+        stats.put("memoryUsagePercent", String.format("%.1f", getKernelHeapUsagePercent()));
 
         return stats;
     }
 
-    private List<String> splitIntoSnippets(String code) {
-        List<String> snippets = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-
-        int parenDepth = 0;   // ()
-        int braceDepth = 0;   // {}
-        int bracketDepth = 0; // []
-
-        for (int i = 0; i < code.length(); i++) {
-            char c = code.charAt(i);
-            current.append(c);
-
-            if (c == '(') parenDepth++;
-            if (c == ')') parenDepth--;
-            if (c == '{') braceDepth++;
-            if (c == '}') braceDepth--;
-            if (c == '[') bracketDepth++;
-            if (c == ']') bracketDepth--;
-
-            // 1) split on ';' when not nested
-            if (c == ';' && parenDepth == 0 && braceDepth == 0 && bracketDepth == 0) {
-                snippets.add(current.toString());
-                current.setLength(0);
-                continue;
-            }
-
-            // 2) ALSO split after '}' when back at top level
-            if (c == '}' && braceDepth == 0 && parenDepth == 0 && bracketDepth == 0) {
-                String snippet = current.toString().trim();
-                if (!snippet.isEmpty()) {
-                    snippets.add(snippet);
-                }
-                current.setLength(0);
-            }
-        }
-
-        String remaining = current.toString().trim();
-        if (!remaining.isEmpty()) {
-            snippets.add(remaining);
-        }
-
-        return snippets;
-    }
-
-
-
     // Cleanup and close jshell safely
     public void shutdown() {
         engine.info(" Shutting down NotebookEngine...");
 
-        // Shutdown executor service
-        executorService.shutdownNow();
+        // Stop taking new work and fail whatever is still queued
+        shuttingDown = true;
+        bootStarted.set(true); // a boot that hasn't started yet never will
+        ready.completeExceptionally(new IllegalStateException("NotebookEngine is shut down")); // no-op once booted
+        SessionRestore restore = activeRestore;
+        if (restore != null) restore.cancel();
+        queueThread.interrupt();
+        QueuedExecution pending;
+        while ((pending = executionQueue.poll()) != null) {
+            pending.future.cancel(false);
+        }
+
+        // Cancel every task/thread in this engine's scope
+        runtime.close();
         try {
-            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                engine.warning(" Executor service did not terminate cleanly.");
+            if (!runtime.awaitTermination(5, TimeUnit.SECONDS)) {
+                engine.warning(" Engine runtime did not terminate cleanly.");
             }
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
@@ -565,6 +1378,8 @@ public class NotebookEngine {
             jshell.close();
             engine.info(" Shutting down JShell...");
         }
+        outputChannel.close();
+        kernelMeter.close();
 
         engine.info(" NotebookEngine shutdown complete.");
     }
@@ -573,4 +1388,45 @@ public class NotebookEngine {
     public boolean isExecuting() {
         return isExecuting;
     }
+
+    // Nothing running, queued or restoring: safe to shut down without losing work (see KernelGovernor)
+    public boolean isIdle() {
+        return !isExecuting && runningItem == null && executionQueue.isEmpty() && activeRestore == null;
+    }
+
+    // When the engine last finished a queued item (or was created)
+    public long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    // Kernel JVM heap in use as of the last cell (-1 before the first sample)
+    public long getKernelHeapUsedBytes() {
+        return kernelHeapUsedBytes;
+    }
+
+    // Max heap of the kernel JVM (its -Xmx), -1 before the first sample
+    public long getKernelHeapMaxBytes() {
+        return kernelHeapMaxBytes;
+    }
+
+    // Used / max heap of the kernel JVM in percent, 0 before the first sample
+    public double getKernelHeapUsagePercent() {
+        long used = kernelHeapUsedBytes;
+        long max = kernelHeapMaxBytes;
+        return used < 0 || max <= 0 ? 0 : used * 100.0 / max;
+    }
+
+    public KernelProfile getProfile() {
+        return profile;
+    }
+
+    // Names this engine's threads after the notebook that uses it (e.g. "notebook-analysis-queue")
+    public void setNotebookName(String notebookName) {
+        runtime.rename("notebook-" + notebookName);
+    }
+
+    // Cells waiting behind the one currently running
+    public int getQueueDepth() {
+        return executionQueue.size();
+    }
 }
@@ -0,0 +1,273 @@
+package com.vessel.Kernel;
+import com.vessel.core.log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Constant-memory capture of one execution's output.
+ *
+ * Keeps a fixed head buffer and a tail ring buffer. Bytes pushed out of the ring are the
+ * "middle" of the output; once that happens the whole output (head + middle + tail) is
+ * streamed into a temp file so the UI can still open it in full.
+ */
+class OutputCapture {
+
+    // What finish() hands back: the in-memory text plus a description of what was cut
+    record Captured(String text, TruncatedOutput truncated, long totalBytes) {}
+
+    private final log engine = log.get("engine");
+
+    private OutputCapturePolicy policy;
+
+    // head: filled once, never overwritten
+    private byte[] head;
+    private int headLen;
+    private long headLines;
+
+    // tail: ring buffer, tailStart is the oldest byte
+    private byte[] tail;
+    private int tailStart;
+    private int tailLen;
+
+    private long totalBytes;
+    private long totalLines;
+
+    // spill file, opened on first overflow
+    private Path spillPath;
+    private OutputStream spill;
+    private boolean overflowed;
+
+    OutputCapture(OutputCapturePolicy policy) {
+        setPolicy(policy);
+    }
+
+    synchronized void setPolicy(OutputCapturePolicy policy) {
+        this.policy = policy;
+        this.head = new byte[policy.headBytes()];
+        this.tail = new byte[policy.tailBytes()];
+        reset();
+    }
+
+    // Clears everything for the next execution. A previous spill file is left alone,
+    // the ExecutionResult that points at it still owns it.
+    synchronized void reset() {
+        closeSpill();
+        headLen = 0;
+        headLines = 0;
+        tailStart = 0;
+        tailLen = 0;
+        totalBytes = 0;
+        totalLines = 0;
+        spillPath = null;
+        overflowed = false;
+    }
+
+    // Single bytes (PrintStream.write(int)) go straight into the head or the ring, no array per byte
+    synchronized void write(int b) {
+        byte value = (byte) b;
+        boolean newline = value == '\n';
+        totalBytes++;
+        if (newline) totalLines++;
+
+        if (headLen < head.length) {
+            head[headLen++] = value;
+            if (newline) headLines++;
+            return;
+        }
+
+        int cap = tail.length;
+        if (cap == 0) {
+            spillByte(value);
+            return;
+        }
+        if (tailLen == cap) {
+            // ring full: the oldest byte becomes middle, the new one takes its slot
+            spillMiddle(tail, tailStart, 1);
+            tail[tailStart] = value;
+            tailStart = (tailStart + 1) % cap;
+        } else {
+            tail[(tailStart + tailLen) % cap] = value;
+            tailLen++;
+        }
+    }
+
+    synchronized void write(byte[] b, int off, int len) {
+        totalBytes += len;
+        totalLines += countLines(b, off, len);
+
+        // 1) head
+        int n = Math.min(len, head.length - headLen);
+        if (n > 0) {
+            System.arraycopy(b, off, head, headLen, n);
+            headLines += countLines(b, off, n);
+            headLen += n;
+            off += n;
+            len -= n;
+        }
+        if (len == 0) return;
+
+        // 2) tail ring, evicting the oldest bytes into the middle
+        int cap = tail.length;
+        if (len >= cap) {
+            // the whole ring plus the front of this write are middle bytes
+            evictFromRing(tailLen);
+            spillMiddle(b, off, len - cap);
+            if (cap > 0) System.arraycopy(b, off + len - cap, tail, 0, cap);
+            tailStart = 0;
+            tailLen = cap;
+            return;
+        }
+
+        int evict = Math.max(0, tailLen + len - cap);
+        evictFromRing(evict);
+        int writePos = (tailStart + tailLen) % cap;
+        int first = Math.min(len, cap - writePos);
+        System.arraycopy(b, off, tail, writePos, first);
+        System.arraycopy(b, off + first, tail, 0, len - first);
+        tailLen += len;
+    }
+
+    // Builds the in-memory text and closes the spill file if there is one
+    synchronized Captured finish() {
+        if (!overflowed) {
+            // head and ring are contiguous here, decode them as one so a character across the seam survives
+            byte[] all = new byte[headLen + tailLen];
+            System.arraycopy(head, 0, all, 0, headLen);
+            copyRing(all, headLen);
+            return new Captured(new String(all, StandardCharsets.UTF_8), null, totalBytes);
+        }
+
+        byte[] tailBytes = ringBytes();
+        if (spill != null) {
+            try {
+                spill.write(tailBytes);
+            } catch (IOException e) {
+                engine.error(" Failed to finish output spill", e);
+            }
+        }
+        closeSpill();
+
+        long tailLines = countLines(tailBytes, 0, tailBytes.length);
+        long truncatedLines = Math.max(0, totalLines - headLines - tailLines);
+
+        // head and tail are cut at arbitrary bytes: drop the partial characters at the cuts
+        // instead of decoding them to U+FFFD (the spill file has them in full)
+        int headEnd = utf8End(head, headLen);
+        int tailFrom = utf8Start(tailBytes);
+        String text = new String(head, 0, headEnd, StandardCharsets.UTF_8)
+                + "\n[... " + truncatedLines + " lines truncated ...]\n"
+                + new String(tailBytes, tailFrom, tailBytes.length - tailFrom, StandardCharsets.UTF_8);
+
+        String path = spillPath != null ? spillPath.toString() : null;
+        return new Captured(text, new TruncatedOutput(truncatedLines, totalBytes, path), totalBytes);
+    }
+
+    private void evictFromRing(int count) {
+        if (count <= 0) return;
+        int cap = tail.length;
+        int first = Math.min(count, cap - tailStart);
+        spillMiddle(tail, tailStart, first);
+        spillMiddle(tail, 0, count - first);
+        tailStart = (tailStart + count) % cap;
+        tailLen -= count;
+    }
+
+    private void spillMiddle(byte[] b, int off, int len) {
+        if (len <= 0) return;
+
+        if (!overflowed) {
+            overflowed = true;
+            openSpill();
+        }
+        if (spill == null) return; // spilling disabled or failed -> middle is dropped
+
+        try {
+            spill.write(b, off, len);
+        } catch (IOException e) {
+            engine.error(" Output spill write failed, dropping the rest of the middle", e);
+            closeSpill();
+        }
+    }
+
+    private void openSpill() {
+        if (!policy.spillToDisk()) return;
+        try {
+            spillPath = Files.createTempFile("vessel-output-", ".txt");
+            spillPath.toFile().deleteOnExit();
+            spill = new BufferedOutputStream(Files.newOutputStream(spillPath), 64 * 1024);
+            // spill file holds the complete output, so it starts with the head
+            spill.write(head, 0, headLen);
+            engine.info(" Output exceeded capture limit, spilling to " + spillPath);
+        } catch (IOException e) {
+            engine.error(" Could not create output spill file", e);
+            spill = null;
+            spillPath = null;
+        }
+    }
+
+    private void closeSpill() {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            engine.error(" Failed to close output spill", e);
+        }
+        spill = null;
+    }
+
+    private void spillByte(byte value) {
+        if (!overflowed) {
+            overflowed = true;
+            openSpill();
+        }
+        if (spill == null) return;
+        try {
+            spill.write(value);
+        } catch (IOException e) {
+            engine.error(" Output spill write failed, dropping the rest of the middle", e);
+            closeSpill();
+        }
+    }
+
+    private byte[] ringBytes() {
+        byte[] out = new byte[tailLen];
+        copyRing(out, 0);
+        return out;
+    }
+
+    private void copyRing(byte[] out, int at) {
+        int first = Math.min(tailLen, tail.length - tailStart);
+        System.arraycopy(tail, tailStart, out, at, first);
+        System.arraycopy(tail, 0, out, at + first, tailLen - first);
+    }
+
+    // Length of b[0, len) without a trailing, incomplete UTF-8 sequence
+    private static int utf8End(byte[] b, int len) {
+        int lead = len - 1;
+        while (lead >= 0 && len - lead < 4 && (b[lead] & 0xC0) == 0x80) lead--; // continuation bytes
+        if (lead < 0) return len;
+        int v = b[lead] & 0xFF;
+        int needed = v >= 0xF0 ? 4 : v >= 0xE0 ? 3 : v >= 0xC0 ? 2 : 1;
+        return lead + needed > len ? lead : len;
+    }
+
+    // First character start in b: skips continuation bytes left over from a character cut at the front
+    private static int utf8Start(byte[] b) {
+        int i = 0;
+        while (i < b.length && i < 3 && (b[i] & 0xC0) == 0x80) i++;
+        return i;
+    }
+
+    private static long countLines(byte[] b, int off, int len) {
+        long lines = 0;
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == '\n') lines++;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,23 @@
+package com.vessel.Kernel;
+
+/**
+ * How much of a cell's output is kept in memory.
+ *
+ * The first headBytes and the last tailBytes are always kept. Anything in between is
+ * either written to a temp file (spillToDisk) or dropped, so a cell printing in a tight
+ * loop costs at most headBytes + tailBytes of heap no matter how much it prints.
+ *
+ * @param headBytes Bytes kept from the start of the output
+ * @param tailBytes Bytes kept from the end of the output (ring buffer)
+ * @param spillToDisk True to keep the full output in a temp file once it overflows
+ */
+public record OutputCapturePolicy(int headBytes, int tailBytes, boolean spillToDisk) {
+
+    public static final OutputCapturePolicy DEFAULT = new OutputCapturePolicy(64 * 1024, 64 * 1024, true);
+
+    public OutputCapturePolicy {
+        if (headBytes < 0 || tailBytes < 0) {
+            throw new IllegalArgumentException("Output capture sizes must be >= 0");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.vessel.Kernel;
+import com.vessel.core.VesselRuntime;
+import com.vessel.core.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Output sink handed to JShell as its out/err streams.
+ *
+ * Everything written is captured for the final ExecutionResult (bounded by an
+ * OutputCapturePolicy, see OutputCapture), and also cut into
+ * OutputChunks (on newline, flush, or every CHUNK_BYTES) that are pushed to subscribers
+ * while the cell is still running. Delivery goes through a bounded queue drained by one
+ * dispatcher thread: a slow subscriber makes the writer wait up to OFFER_TIMEOUT_MS,
+ * after which the chunk is dropped (and counted) instead of stalling the kernel forever.
+ */
+public class OutputChannel {
+
+    // === Limits ===
+    private static final int CHUNK_BYTES = 8 * 1024;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long OFFER_TIMEOUT_MS = 250;
+
+    // === State ===
+    private final OutputCapture capture = new OutputCapture(OutputCapturePolicy.DEFAULT);
+    private final PrintStream stdout = new PrintStream(new ChunkStream(OutputChunk.Stream.STDOUT), true, StandardCharsets.UTF_8);
+    private final PrintStream stderr = new PrintStream(new ChunkStream(OutputChunk.Stream.STDERR), true, StandardCharsets.UTF_8);
+    private volatile String currentCellId;
+
+    // === Subscribers ===
+    private final List<Consumer<OutputChunk>> subscribers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<OutputChunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread dispatcher;
+    private final AtomicLong droppedChunks = new AtomicLong();
+
+    // === Loggers ===
+    private final log engine = log.get("engine");
+
+    public OutputChannel(VesselRuntime.Scope runtime) {
+        dispatcher = runtime.startThread("output", this::dispatchLoop);
+    }
+
+    public PrintStream stdout() { return stdout; }
+    public PrintStream stderr() { return stderr; }
+
+    // Starts capturing output for a new execution
+    public void begin(String cellId) {
+        stdout.flush();
+        stderr.flush();
+        capture.reset();
+        currentCellId = cellId;
+    }
+
+    // Everything printed since begin(), head + tail only if it overflowed the capture policy
+    OutputCapture.Captured captured() {
+        stdout.flush();
+        stderr.flush();
+        return capture.finish();
+    }
+
+    public void setCapturePolicy(OutputCapturePolicy policy) {
+        capture.setPolicy(policy);
+    }
+
+    // Registers a listener for live output. Chunks are delivered on the dispatcher thread.
+    // Returns a handle that removes the listener again.
+    public Runnable subscribe(Consumer<OutputChunk> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public long getDroppedChunks() {
+        return droppedChunks.get();
+    }
+
+    public void close() {
+        dispatcher.interrupt();
+        subscribers.clear();
+        queue.clear();
+    }
+
+    private void publish(OutputChunk chunk) {
+        // nobody listening -> nothing to queue
+        if (subscribers.isEmpty()) return;
+
+        try {
+            if (!queue.offer(chunk, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                droppedChunks.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            OutputChunk chunk;
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Consumer<OutputChunk> subscriber : subscribers) {
+                try {
+                    subscriber.accept(chunk);
+                } catch (RuntimeException e) {
+                    engine.error(" Output subscriber failed", e);
+                }
+            }
+        }
+    }
+
+    // Writes into the shared capture buffer and cuts the bytes into chunks for subscribers
+    private class ChunkStream extends OutputStream {
+        private final OutputChunk.Stream kind;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        ChunkStream(OutputChunk.Stream kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            capture.write(b);
+            pending.write(b);
+            if (b == '\n' || pending.size() >= CHUNK_BYTES) {
+                emit();
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            capture.write(b, off, len);
+            pending.write(b, off, len);
+            if (pending.size() >= CHUNK_BYTES || contains(b, off, len, (byte) '\n')) {
+                emit();
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            emit();
+        }
+
+        private void emit() {
+            if (pending.size() == 0) return;
+
+            byte[] bytes = pending.toByteArray();
+            int end = completeUtf8Length(bytes);
+            pending.reset();
+            // keep a trailing partial UTF-8 sequence for the next chunk
+            pending.write(bytes, end, bytes.length - end);
+
+            if (end > 0) {
+                publish(new OutputChunk(currentCellId, kind, new String(bytes, 0, end, StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    private static boolean contains(byte[] b, int off, int len, byte value) {
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == value) return true;
+        }
+        return false;
+    }
+
+    // Length of the prefix of `bytes` that ends on a UTF-8 character boundary
+    private static int completeUtf8Length(byte[] bytes) {
+        int n = bytes.length;
+        // walk back over at most 3 continuation bytes to the lead byte of the last char
+        for (int i = n - 1; i >= 0 && i >= n - 4; i--) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) == 0x80) continue; // continuation byte
+            int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return (n - i) >= needed ? n : i;
+        }
+        return n;
+    }
+}
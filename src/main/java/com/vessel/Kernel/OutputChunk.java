@@ -0,0 +1,13 @@
+package com.vessel.Kernel;
+
+/**
+ * A piece of stdout/stderr produced by a running cell, delivered to
+ * output subscribers while the cell is still executing.
+ *
+ * @param cellId Id of the cell that was executing when the text was printed
+ * @param stream Which stream the text was written to
+ * @param text The printed text (always whole characters, never half a UTF-8 sequence)
+ */
+public record OutputChunk(String cellId, Stream stream, String text) {
+    public enum Stream { STDOUT, STDERR }
+}
@@ -0,0 +1,71 @@
+package com.vessel.Kernel;
+
+/**
+ * Limits one cell execution may use before the engine stops it.
+ *
+ * Stored per notebook (the default) and optionally per cell (an override).
+ * A value of 0 means "no limit" for that dimension, and a cell budget only
+ * overrides the fields it actually sets, see {@link #orElse(ResourceBudget)}.
+ *
+ * CPU time and allocated bytes are measured on the kernel thread that runs the
+ * cell's snippets (ThreadMXBean inside the kernel JVM), wall time on the host.
+ *
+ * @param wallTimeMs Max elapsed time for the whole cell
+ * @param cpuTimeMs Max CPU time of the kernel's execution thread
+ * @param allocatedBytes Max bytes allocated by the kernel's execution thread
+ */
+public record ResourceBudget(long wallTimeMs, long cpuTimeMs, long allocatedBytes) {
+
+    // Same 5s wall limit the engine always had, CPU and allocation unlimited
+    public static final ResourceBudget DEFAULT = new ResourceBudget(5_000, 0, 0);
+
+    // Which limit stopped a cell (reported in ExecutionResult)
+    public enum Kind {
+        WALL_TIME("wall time"),
+        CPU_TIME("CPU time"),
+        ALLOCATION("allocation"),
+        MEMORY("memory"); // kernel old generation stayed over the profile's limit, see KernelProfile.memoryLimitPercent
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    public ResourceBudget {
+        if (wallTimeMs < 0 || cpuTimeMs < 0 || allocatedBytes < 0) {
+            throw new IllegalArgumentException("Budget values must be >= 0 (0 = unlimited)");
+        }
+    }
+
+    // Fields left at 0 here are taken from the fallback (cell override -> notebook default)
+    public ResourceBudget orElse(ResourceBudget fallback) {
+        if (fallback == null) return this;
+        return new ResourceBudget(
+                wallTimeMs > 0 ? wallTimeMs : fallback.wallTimeMs,
+                cpuTimeMs > 0 ? cpuTimeMs : fallback.cpuTimeMs,
+                allocatedBytes > 0 ? allocatedBytes : fallback.allocatedBytes);
+    }
+
+    // CPU/allocation need the in-kernel meter, wall time does not
+    public boolean needsMeter() {
+        return cpuTimeMs > 0 || allocatedBytes > 0;
+    }
+
+    // Human readable limit for error messages, e.g. "CPU time 2000 ms"
+    public String describe(Kind kind) {
+        return switch (kind) {
+            case WALL_TIME -> kind.label() + " " + wallTimeMs + " ms";
+            case CPU_TIME -> kind.label() + " " + cpuTimeMs + " ms";
+            case ALLOCATION -> kind.label() + " " + (allocatedBytes >= 1024 * 1024
+                    ? allocatedBytes / (1024 * 1024) + " MB"
+                    : allocatedBytes + " bytes");
+            case MEMORY -> kind.label() + " budget of the kernel";
+        };
+    }
+}
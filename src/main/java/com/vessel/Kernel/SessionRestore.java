@@ -0,0 +1,107 @@
+package com.vessel.Kernel;
+
+import com.vessel.model.NotebookCell;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Handle for a session restore queued with NotebookEngine.restoreSession().
+ *
+ * After a notebook is opened the kernel is empty. A restore walks the cells in order and
+ * replays only their declarations (imports, classes, methods, variables with side-effect free
+ * initialisers, see DeclarationFilter) so the session's definitions come back without running
+ * anybody's statements. It runs in the background on the engine's queue and steps aside
+ * between cells whenever something else is queued, so cells can run while it is going.
+ *
+ * whenReady(cell) completes once every cell above it is restored; the engine holds back a
+ * submitted cell until then. A cell that runs for real in the meantime is not replayed
+ * afterwards. The progress listener is called on the engine's queue thread (hop to
+ * the FX thread yourself).
+ */
+public class SessionRestore {
+
+    private final List<NotebookCell> cells;
+    private final Consumer<SessionRestore> onProgress;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final Map<String, CompletableFuture<Void>> ready = new LinkedHashMap<>(); // by cell id, in cell order
+    private final Set<String> executed = ConcurrentHashMap.newKeySet();
+
+    // === Progress ===
+    private volatile int restoredCells = 0;
+    private volatile int replayedSnippets = 0;
+    private volatile int skippedSnippets = 0;
+    private volatile int failedSnippets = 0;
+    private int nextCell = 0; // engine side, queue thread only
+
+    public SessionRestore(List<NotebookCell> cells, Consumer<SessionRestore> onProgress) {
+        this.cells = List.copyOf(cells);
+        this.onProgress = onProgress != null ? onProgress : restore -> {};
+        for (NotebookCell cell : this.cells) {
+            ready.put(cell.getId(), new CompletableFuture<>());
+        }
+        if (!this.cells.isEmpty()) ready.get(this.cells.get(0).getId()).complete(null); // nothing above the first cell
+    }
+
+    public List<NotebookCell> getCells() { return cells; }
+    public int getTotalCells() { return cells.size(); }
+    public int getRestoredCells() { return restoredCells; }
+    public int getReplayedSnippets() { return replayedSnippets; }
+    public int getSkippedSnippets() { return skippedSnippets; }
+    public int getFailedSnippets() { return failedSnippets; }
+
+    // Completes when every cell is restored, or is cancelled / failed
+    public CompletableFuture<Void> getFuture() { return future; }
+
+    public boolean isDone() { return future.isDone(); }
+
+    // Completes once every cell above `cell` is restored (right away for cells not in this restore).
+    // The cell itself doesn't need replaying: it is about to run for real.
+    public CompletableFuture<Void> whenReady(NotebookCell cell) {
+        CompletableFuture<Void> cellReady = ready.get(cell.getId());
+        return cellReady != null ? cellReady : CompletableFuture.completedFuture(null);
+    }
+
+    public boolean isReady(NotebookCell cell) {
+        return whenReady(cell).isDone();
+    }
+
+    // Stops replaying; cells waiting on whenReady() are let through
+    public void cancel() {
+        future.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    // === Engine side ===
+
+    boolean hasNext() { return nextCell < cells.size(); }
+    NotebookCell next() { return cells.get(nextCell++); }
+
+    // The cell ran for real while the restore was in progress, replaying it would undo that
+    void markExecuted(NotebookCell cell) { executed.add(cell.getId()); }
+    boolean wasExecuted(NotebookCell cell) { return executed.contains(cell.getId()); }
+
+    void snippetReplayed() { replayedSnippets++; }
+    void snippetSkipped() { skippedSnippets++; }
+    void snippetFailed() { failedSnippets++; }
+
+    // Called in cell order: the cell after the one just restored can run now
+    void cellRestored() {
+        restoredCells++;
+        if (hasNext()) ready.get(cells.get(nextCell).getId()).complete(null);
+        onProgress.accept(this);
+    }
+
+    // Done (or given up): nobody may be left waiting on a cell
+    void release() {
+        ready.values().forEach(cellReady -> cellReady.complete(null));
+    }
+}
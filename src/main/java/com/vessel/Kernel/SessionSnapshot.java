@@ -0,0 +1,103 @@
+package com.vessel.Kernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of what is defined in a JShell session: variables (name + type, no values),
+ * methods, imports and types.
+ *
+ * The engine builds one under the execution lock after every execution / reset and
+ * publishes it through an AtomicReference, so readers never wait on a running cell.
+ * The version goes up by one per publish; diff() tells a UI what to add, drop or refresh
+ * instead of rebuilding everything.
+ *
+ * @param version Publish counter, 0 for the empty snapshot
+ * @param variables Declared variables in declaration order
+ * @param methods Method signatures, e.g. "(int)int square(int)"
+ * @param imports Fully qualified imports
+ * @param types Classes / interfaces / enums / records declared in the session
+ */
+public record SessionSnapshot(long version, List<Variable> variables, List<String> methods,
+                              List<String> imports, List<String> types) {
+
+    public static final SessionSnapshot EMPTY = new SessionSnapshot(0, List.of(), List.of(), List.of(), List.of());
+
+    // declaration is the declaring snippet's source; it differs whenever the variable is re-declared
+    public record Variable(String name, String typeName, String declaration) {}
+
+    // What changed between two snapshots
+    public record Diff(long fromVersion, long toVersion,
+                       List<Variable> addedVariables, List<String> removedVariables, List<Variable> redeclaredVariables,
+                       List<String> addedMethods, List<String> removedMethods,
+                       List<String> addedImports, List<String> removedImports,
+                       List<String> addedTypes, List<String> removedTypes) {
+
+        public boolean isEmpty() {
+            return addedVariables.isEmpty() && removedVariables.isEmpty() && redeclaredVariables.isEmpty()
+                    && addedMethods.isEmpty() && removedMethods.isEmpty()
+                    && addedImports.isEmpty() && removedImports.isEmpty()
+                    && addedTypes.isEmpty() && removedTypes.isEmpty();
+        }
+    }
+
+    public SessionSnapshot {
+        variables = List.copyOf(variables);
+        methods = List.copyOf(methods);
+        imports = List.copyOf(imports);
+        types = List.copyOf(types);
+    }
+
+    public Variable variable(String name) {
+        for (Variable v : variables) {
+            if (v.name().equals(name)) return v;
+        }
+        return null;
+    }
+
+    // Changes from `older` to this snapshot (null = everything is new)
+    public Diff diff(SessionSnapshot older) {
+        if (older == null) older = EMPTY;
+
+        Map<String, Variable> before = new HashMap<>();
+        for (Variable v : older.variables) before.put(v.name(), v);
+
+        List<Variable> added = new ArrayList<>();
+        List<Variable> redeclared = new ArrayList<>();
+        Set<String> stillThere = new HashSet<>();
+        for (Variable v : variables) {
+            Variable old = before.get(v.name());
+            stillThere.add(v.name());
+            if (old == null) {
+                added.add(v);
+            } else if (!old.equals(v)) {
+                redeclared.add(v);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (Variable v : older.variables) {
+            if (!stillThere.contains(v.name())) removed.add(v.name());
+        }
+
+        return new Diff(older.version, version,
+                added, removed, redeclared,
+                minus(methods, older.methods), minus(older.methods, methods),
+                minus(imports, older.imports), minus(older.imports, imports),
+                minus(types, older.types), minus(older.types, types));
+    }
+
+    // Entries of `a` that are not in `b`, order of `a` kept
+    private static List<String> minus(List<String> a, List<String> b) {
+        if (a.isEmpty()) return List.of();
+        Set<String> exclude = new HashSet<>(b);
+        List<String> result = new ArrayList<>();
+        for (String s : a) {
+            if (!exclude.contains(s)) result.add(s);
+        }
+        return result;
+    }
+}
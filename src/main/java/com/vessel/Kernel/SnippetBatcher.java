@@ -0,0 +1,149 @@
+package com.vessel.Kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges runs of consecutive plain statements into one block snippet so JShell compiles
+ * them once instead of once per statement (each eval is a full javac compile + class load).
+ *
+ * Declarations (vars, methods, classes, imports) always stay separate snippets, otherwise
+ * they would become block-local and JShell's redefinition semantics would break. The
+ * classifier is purely syntactic and deliberately conservative: anything it isn't sure about
+ * counts as a declaration. If a merged block is rejected, the engine falls back to
+ * evaluating its pieces one by one.
+ */
+final class SnippetBatcher {
+
+    // One jshell.eval call: either a single snippet or a merged block of statements
+    record EvalUnit(String code, List<String> parts) {
+        boolean isMerged() { return parts.size() > 1; }
+    }
+
+    // Statements that start with a keyword and can never declare anything visible outside
+    private static final Set<String> STATEMENT_KEYWORDS = Set.of(
+            "if", "for", "while", "do", "switch", "try", "throw", "synchronized",
+            "assert", "new", "break", "continue", "return"
+    );
+
+    // Keywords that mean "declaration" (or something we'd rather not merge)
+    private static final Set<String> DECLARATION_KEYWORDS = Set.of(
+            "import", "class", "interface", "enum", "record", "var", "final", "static", "abstract",
+            "public", "private", "protected", "sealed", "non", "strictfp", "default", "void",
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "this", "super"
+    );
+
+    private SnippetBatcher() {}
+
+    static List<EvalUnit> batch(List<String> snippets) {
+        List<EvalUnit> units = new ArrayList<>();
+        List<String> run = new ArrayList<>();
+
+        for (String snippet : snippets) {
+            if (snippet.isBlank()) continue;
+
+            if (isPlainStatement(snippet)) {
+                run.add(snippet);
+            } else {
+                flush(run, units);
+                units.add(new EvalUnit(snippet, List.of(snippet)));
+            }
+        }
+        flush(run, units);
+        return units;
+    }
+
+    private static void flush(List<String> run, List<EvalUnit> units) {
+        if (run.isEmpty()) return;
+
+        if (run.size() == 1) {
+            units.add(new EvalUnit(run.get(0), List.of(run.get(0))));
+        } else {
+            StringBuilder block = new StringBuilder("{\n");
+            for (String part : run) {
+                block.append(part.strip()).append('\n');
+            }
+            block.append('}');
+            units.add(new EvalUnit(block.toString(), List.copyOf(run)));
+        }
+        run.clear();
+    }
+
+    // True for statements that are safe to wrap in a block:
+    //   keyword statements (if/for/while/try/...), blocks, method calls, assignments and ++/--.
+    static boolean isPlainStatement(String snippet) {
+        String code = stripLeadingComments(snippet);
+        if (code.isEmpty()) return false;
+
+        char first = code.charAt(0);
+        if (first == '{') return true;
+        if (code.startsWith("++") || code.startsWith("--")) return true;
+        if (!Character.isJavaIdentifierStart(first)) return false;
+
+        String word = readIdentifier(code, 0);
+        if (STATEMENT_KEYWORDS.contains(word)) return true;
+        if (DECLARATION_KEYWORDS.contains(word)) return false;
+
+        // identifier chain a.b.c, optionally indexed: a.b[i][j]
+        int i = 0;
+        while (true) {
+            i = skipSpaces(code, i + readIdentifier(code, i).length());
+            if (i < code.length() && code.charAt(i) == '.') {
+                i = skipSpaces(code, i + 1);
+                if (i >= code.length() || !Character.isJavaIdentifierStart(code.charAt(i))) return false;
+                continue;
+            }
+            break;
+        }
+        boolean indexed = false;
+        while (i < code.length() && code.charAt(i) == '[') {
+            int close = code.indexOf(']', i);
+            // "[]" is an array type -> declaration
+            if (close < 0 || code.substring(i + 1, close).isBlank()) return false;
+            i = skipSpaces(code, close + 1);
+            indexed = true;
+        }
+        if (i >= code.length()) return false;
+
+        char next = code.charAt(i);
+        // method call: println(...), obj.run(...)
+        if (next == '(' && !indexed) return true;
+        // x++ / x--
+        if (code.startsWith("++", i) || code.startsWith("--", i)) return true;
+        // assignment: = += -= *= /= %= &= |= ^= <<= >>= >>>=  (but not ==)
+        if (next == '=') return i + 1 >= code.length() || code.charAt(i + 1) != '=';
+        int op = i;
+        while (op < code.length() && "+-*/%&|^<>".indexOf(code.charAt(op)) >= 0 && op - i < 3) op++;
+        return op > i && op < code.length() && code.charAt(op) == '='
+                && (op + 1 >= code.length() || code.charAt(op + 1) != '=');
+    }
+
+    private static String readIdentifier(String code, int start) {
+        int i = start;
+        while (i < code.length() && Character.isJavaIdentifierPart(code.charAt(i))) i++;
+        return code.substring(start, i);
+    }
+
+    private static int skipSpaces(String code, int i) {
+        while (i < code.length() && Character.isWhitespace(code.charAt(i))) i++;
+        return i;
+    }
+
+    static String stripLeadingComments(String snippet) {
+        int i = skipSpaces(snippet, 0);
+        while (i < snippet.length() - 1 && snippet.charAt(i) == '/') {
+            if (snippet.charAt(i + 1) == '/') {
+                int end = snippet.indexOf('\n', i);
+                i = end < 0 ? snippet.length() : end + 1;
+            } else if (snippet.charAt(i + 1) == '*') {
+                int end = snippet.indexOf("*/", i + 2);
+                i = end < 0 ? snippet.length() : end + 2;
+            } else {
+                break;
+            }
+            i = skipSpaces(snippet, i);
+        }
+        return snippet.substring(i);
+    }
+}
@@ -0,0 +1,27 @@
+package com.vessel.Kernel;
+
+/**
+ * Attached to an ExecutionResult when the engine had to stop the cell (budget or user interrupt):
+ * how far the stop had to escalate before the kernel was free again.
+ *
+ * @param outcome STOPPED if the cell let go after jshell.stop(), KERNEL_REPLACED if it didn't and
+ *                the engine swapped in a fresh kernel (the session is lost)
+ * @param stopMillis Time from the stop request until the engine was free for the next cell
+ * @param threadDump Stacks of the kernel's threads taken while the cell was stuck (null if it
+ *                   stopped within the grace period, or the kernel didn't answer)
+ */
+public record StopReport(Outcome outcome, long stopMillis, String threadDump) {
+
+    public enum Outcome {
+        STOPPED,
+        KERNEL_REPLACED
+    }
+
+    public boolean kernelReplaced() {
+        return outcome == Outcome.KERNEL_REPLACED;
+    }
+
+    public boolean hasThreadDump() {
+        return threadDump != null && !threadDump.isBlank();
+    }
+}
@@ -0,0 +1,157 @@
+package com.vessel.Kernel;
+
+import jdk.jshell.spi.ExecutionControl;
+import jdk.jshell.spi.ExecutionControlProvider;
+import jdk.jshell.spi.ExecutionEnv;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExecutionControl that forwards to JShell's normal remote (JDI) kernel and
+ * adds up how long the kernel spent running snippet code.
+ *
+ * jshell.eval() = javac compile on our side + class load + invoke in the kernel.
+ * Timing invoke() separately is what lets ExecutionMetrics split an eval
+ * into compile time and run time without any extra round trip.
+ *
+ * With the "local" spec (KernelProfile.Engine.LOCAL) snippets run inside this JVM and
+ * print to our own System.out / System.err. Those are replaced once by streams that send
+ * the output of threads started from a local invoke to the engine's channel instead.
+ */
+class TimedExecutionControl implements ExecutionControl {
+
+    // Same failover chain JShell uses by default: attach over localhost, then launch
+    static final String DEFAULT_SPEC = "failover:0(jdi:hostname(localhost)),1(jdi:launch(true)),2(jdi)";
+    static final String LOCAL_SPEC = "local";
+
+    // Local engine output: the target streams of the invoke a thread belongs to (inherited by the
+    // snippet's execution thread and anything it starts), null = Vessel's own output
+    private static final InheritableThreadLocal<PrintStream[]> LOCAL_TARGET = new InheritableThreadLocal<>();
+    private static boolean localStreamsInstalled = false;
+
+    private final ExecutionControl delegate;
+    private final AtomicLong runNanos;
+    private final PrintStream[] localTarget; // {out, err} for the local engine, null for a remote kernel
+
+    private TimedExecutionControl(ExecutionControl delegate, AtomicLong runNanos, PrintStream[] localTarget) {
+        this.delegate = delegate;
+        this.runNanos = runNanos;
+        this.localTarget = localTarget;
+    }
+
+    // Plugged into JShell.builder().executionEngine(provider, null).
+    // runNanos is owned by the engine so it survives the control being regenerated.
+    // out / err only matter for the local spec: a remote kernel's output already arrives over env.
+    static ExecutionControlProvider provider(String spec, AtomicLong runNanos, PrintStream out, PrintStream err) {
+        return new ExecutionControlProvider() {
+            @Override
+            public String name() {
+                return "vessel-timed";
+            }
+
+            @Override
+            public ExecutionControl generate(ExecutionEnv env, Map<String, String> parameters) throws Throwable {
+                PrintStream[] localTarget = null;
+                if (LOCAL_SPEC.equals(spec)) {
+                    installLocalStreams();
+                    localTarget = new PrintStream[] {out, err};
+                }
+                return new TimedExecutionControl(ExecutionControl.generate(env, spec), runNanos, localTarget);
+            }
+        };
+    }
+
+    @Override
+    public String invoke(String className, String methodName) throws RunException, EngineTerminationException, InternalException {
+        long start = System.nanoTime();
+        if (localTarget != null) LOCAL_TARGET.set(localTarget);
+        try {
+            return delegate.invoke(className, methodName);
+        } finally {
+            if (localTarget != null) {
+                localTarget[0].flush();
+                LOCAL_TARGET.remove();
+            }
+            runNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Replaces System.out / System.err (once per process) with streams that follow LOCAL_TARGET
+    private static synchronized void installLocalStreams() {
+        if (localStreamsInstalled) return;
+        localStreamsInstalled = true;
+        System.setOut(routed(System.out, 0));
+        System.setErr(routed(System.err, 1));
+    }
+
+    private static PrintStream routed(PrintStream fallback, int index) {
+        return new PrintStream(new OutputStream() {
+            private OutputStream target() {
+                PrintStream[] target = LOCAL_TARGET.get();
+                return target != null ? target[index] : fallback;
+            }
+
+            @Override
+            public void write(int b) {
+                try {
+                    target().write(b);
+                } catch (java.io.IOException ignored) {
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    target().write(b, off, len);
+                } catch (java.io.IOException ignored) {
+                }
+            }
+
+            @Override
+            public void flush() {
+                try {
+                    target().flush();
+                } catch (java.io.IOException ignored) {
+                }
+            }
+        }, true);
+    }
+
+    @Override
+    public void load(ClassBytecodes[] cbcs) throws ClassInstallException, NotImplementedException, EngineTerminationException {
+        delegate.load(cbcs);
+    }
+
+    @Override
+    public void redefine(ClassBytecodes[] cbcs) throws ClassInstallException, NotImplementedException, EngineTerminationException {
+        delegate.redefine(cbcs);
+    }
+
+    @Override
+    public String varValue(String className, String varName) throws RunException, EngineTerminationException, InternalException {
+        return delegate.varValue(className, varName);
+    }
+
+    @Override
+    public void addToClasspath(String path) throws EngineTerminationException, InternalException {
+        delegate.addToClasspath(path);
+    }
+
+    @Override
+    public void stop() throws EngineTerminationException, InternalException {
+        delegate.stop();
+    }
+
+    @Override
+    public Object extensionCommand(String command, Object arg) throws RunException, EngineTerminationException, InternalException {
+        return delegate.extensionCommand(command, arg);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
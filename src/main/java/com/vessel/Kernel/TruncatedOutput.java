@@ -0,0 +1,19 @@
+package com.vessel.Kernel;
+
+/**
+ * Attached to an ExecutionResult when the output was too big to keep in memory.
+ * The result's output() then only holds the head and tail; the rest is described here.
+ *
+ * @param truncatedLines Number of lines left out of output()
+ * @param totalBytes Size of the complete output in bytes
+ * @param spillPath Temp file holding the complete output, or null if the middle was dropped.
+ *                  Only set for results of this session: the file is deleted once the cell's
+ *                  result is replaced, and it is not saved with the notebook
+ */
+public record TruncatedOutput(long truncatedLines, long totalBytes, String spillPath) {
+
+    // Set by the capture only once the file was written, so no file system check needed (called on the FX thread)
+    public boolean hasSpillFile() {
+        return spillPath != null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.vessel.Kernel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Host side of the variable explorer's kernel helper.
+ *
+ * jshell.varValue() stringifies the whole object inside the kernel and ships it back,
+ * which takes seconds for a 10M element list. Instead a small helper class (INSPECTOR_SOURCE,
+ * defined on first use) renders just one page of a variable inside the kernel, clipping each
+ * element to MAX_ITEM_CHARS. The reply is base64 per item so it survives JShell's
+ * string-literal escaping of the returned value untouched.
+ */
+class VariableInspector {
+
+    static final int MAX_ITEM_CHARS = 200;
+
+    private static final String INSPECTOR_CLASS = "VesselInspector";
+    private static final String INSPECTOR_SOURCE = """
+            class VesselInspector {
+                static String render(Object value, int offset, int limit, int maxChars) {
+                    String kind = "value";
+                    long size = -1;
+                    java.util.List<String> items = new java.util.ArrayList<>();
+                    if (value != null && value.getClass().isArray()) {
+                        kind = "array";
+                        int n = java.lang.reflect.Array.getLength(value);
+                        size = n;
+                        for (int i = offset; i < n && i < offset + limit; i++) {
+                            items.add(clip(String.valueOf(java.lang.reflect.Array.get(value, i)), maxChars));
+                        }
+                    } else if (value instanceof java.util.List<?> list) {
+                        kind = "list";
+                        size = list.size();
+                        if (offset < size) {
+                            var it = list.listIterator(offset);
+                            for (int i = 0; i < limit && it.hasNext(); i++) items.add(clip(String.valueOf(it.next()), maxChars));
+                        }
+                    } else if (value instanceof java.util.Collection<?> collection) {
+                        kind = "collection";
+                        size = collection.size();
+                        var it = collection.iterator();
+                        for (int i = 0; i < offset && it.hasNext(); i++) it.next();
+                        for (int i = 0; i < limit && it.hasNext(); i++) items.add(clip(String.valueOf(it.next()), maxChars));
+                    } else if (value instanceof java.util.Map<?, ?> map) {
+                        kind = "map";
+                        size = map.size();
+                        var it = map.entrySet().iterator();
+                        for (int i = 0; i < offset && it.hasNext(); i++) it.next();
+                        for (int i = 0; i < limit && it.hasNext(); i++) {
+                            var e = it.next();
+                            items.add(clip(e.getKey() + " = " + e.getValue(), maxChars));
+                        }
+                    } else {
+                        items.add(clip(String.valueOf(value), maxChars));
+                    }
+                    StringBuilder out = new StringBuilder(kind).append(';').append(size);
+                    var encoder = java.util.Base64.getEncoder();
+                    for (String item : items) {
+                        out.append(';').append(encoder.encodeToString(item.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+                    }
+                    return out.toString();
+                }
+
+                static String clip(String s, int maxChars) {
+                    return s.length() <= maxChars ? s : s.substring(0, maxChars) + "… (" + s.length() + " chars)";
+                }
+            }
+            """;
+
+    // Kind, size and items as decoded from the helper's reply
+    record Rendered(String kind, long size, List<String> items) {}
+
+    private boolean defined = false; // helper class evaluated in the current JShell session
+
+    String defineSnippet() {
+        return INSPECTOR_SOURCE;
+    }
+
+    boolean isDefined() { return defined; }
+    void markDefined() { defined = true; }
+
+    // JShell was reset / rebuilt, the helper class is gone
+    void forget() { defined = false; }
+
+    boolean isHelperType(String typeName) { return INSPECTOR_CLASS.equals(typeName); }
+
+    // name must be a variable from the current session snapshot (it is pasted into source)
+    String renderSnippet(String name, int offset, int limit) {
+        return INSPECTOR_CLASS + ".render(" + name + ", " + offset + ", " + limit + ", " + MAX_ITEM_CHARS + ")";
+    }
+
+    // Parses "\"kind;size;b64;b64...\"" as returned by renderSnippet()
+    Rendered parse(String value) {
+        if (value == null) return null;
+        String raw = value.startsWith("\"") && value.endsWith("\"") && value.length() >= 2
+                ? value.substring(1, value.length() - 1)
+                : value;
+        String[] parts = raw.split(";", -1);
+        if (parts.length < 2) return null;
+        try {
+            long size = Long.parseLong(parts[1]);
+            List<String> items = new ArrayList<>(parts.length - 2);
+            Base64.Decoder decoder = Base64.getDecoder();
+            for (int i = 2; i < parts.length; i++) {
+                items.add(new String(decoder.decode(parts[i]), StandardCharsets.UTF_8));
+            }
+            return new Rendered(parts[0], size, items);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.vessel.Kernel;
+
+import java.util.List;
+
+/**
+ * One page of a rendered variable for the variable explorer.
+ *
+ * Containers (arrays, lists, other collections, maps) are paged: items holds the
+ * elements [offset, offset + items.size()) out of size. Anything else is a single
+ * item with its toString(). Every item is clipped to a fixed length in the kernel,
+ * so a huge element never crosses the JDI connection in full.
+ *
+ * @param name Variable name
+ * @param typeName Declared type as JShell reports it
+ * @param generation Session snapshot version the page was rendered for
+ * @param kind "array", "list", "collection", "map" or "value"
+ * @param size Element count for containers, -1 for plain values
+ * @param offset Index of the first item
+ * @param items Rendered elements ("key = value" for maps)
+ */
+public record VariablePage(String name, String typeName, long generation, String kind, long size,
+                           int offset, List<String> items) {
+
+    public VariablePage {
+        items = List.copyOf(items);
+    }
+
+    public boolean isContainer() {
+        return size >= 0;
+    }
+
+    public boolean hasMore() {
+        return isContainer() && offset + items.size() < size;
+    }
+
+    public int nextOffset() {
+        return offset + items.size();
+    }
+}
@@ -1,6 +1,9 @@
 package com.vessel; // com.vessel is folder(package) inside which we have all the files
 // some javafx classes are imported
 // Main.java
+import com.vessel.Kernel.KernelGovernor;
+import com.vessel.Kernel.KernelPool;
+import com.vessel.core.VesselRuntime;
 import com.vessel.ui.NotebookController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -29,9 +32,14 @@ public class Main extends Application {
     @Override
     public void stop() throws Exception {
         // Called when app closes
-        if (controller != null && controller.getCurrentNotebook() != null) {
-            controller.getCurrentNotebook().shutdownEngine();
+        if (controller != null) {
+            controller.shutdownAll(); // kernels of every open notebook tab
         }
+        KernelGovernor.shutdownShared();
+        // close any pre-warmed kernels still waiting in the pool
+        KernelPool.shutdownShared();
+        // cancel background saves/renders still on the shared runtime
+        VesselRuntime.shutdown();
         super.stop();
     }
 
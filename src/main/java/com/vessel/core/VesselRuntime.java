@@ -0,0 +1,142 @@
+package com.vessel.core;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared background runtime built on Java 21 virtual threads.
+ *
+ * Work is grouped into Scopes: one per engine/notebook plus a shared "ui" scope for saves and
+ * preview rendering. Every task in a scope runs on its own virtual thread named after the scope
+ * (e.g. "notebook-analysis-3"), and closing the scope cancels everything still running in it,
+ * so nothing outlives the notebook that started it.
+ */
+public final class VesselRuntime {
+
+    private static final Scope SHARED = new Scope("ui");
+
+    private VesselRuntime() {}
+
+    // App-wide scope for UI background work (save, preview rendering, file opening)
+    public static Scope shared() {
+        return SHARED;
+    }
+
+    public static Scope newScope(String name) {
+        return new Scope(name);
+    }
+
+    // Called on app exit
+    public static void shutdown() {
+        SHARED.close();
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private volatile String name;
+        private final AtomicLong threadCounter = new AtomicLong();
+        private final ExecutorService executor;
+        private final Set<Future<?>> running = ConcurrentHashMap.newKeySet();
+        private final Set<Thread> longLived = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed = false;
+
+        private Scope(String name) {
+            this.name = name;
+            this.executor = Executors.newThreadPerTaskExecutor(this::newThread);
+        }
+
+        private Thread newThread(Runnable task) {
+            return Thread.ofVirtual()
+                    .name(name + "-" + threadCounter.incrementAndGet())
+                    .unstarted(task);
+        }
+
+        // Short task on a fresh virtual thread. The future is cancelled if the scope closes first.
+        public <T> Future<T> submit(Callable<T> task) {
+            FutureTask<T> future = new FutureTask<>(task) {
+                @Override
+                protected void done() {
+                    running.remove(this);
+                }
+            };
+            return track(future);
+        }
+
+        public Future<?> submit(Runnable task) {
+            return submit(Executors.callable(task));
+        }
+
+        private <T> Future<T> track(FutureTask<T> future) {
+            running.add(future);
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                running.remove(future);
+                future.cancel(false);
+            }
+            return future;
+        }
+
+        // Long-running loop (queue consumer, output dispatcher). Interrupted when the scope closes.
+        public Thread startThread(String role, Runnable loop) {
+            Thread thread = Thread.ofVirtual()
+                    .name(name + "-" + role)
+                    .unstarted(() -> {
+                        try {
+                            loop.run();
+                        } finally {
+                            longLived.remove(Thread.currentThread());
+                        }
+                    });
+            longLived.add(thread);
+            if (closed) {
+                longLived.remove(thread);
+                return thread; // never started
+            }
+            thread.start();
+            return thread;
+        }
+
+        // Renames the scope; live long-running threads are renamed too (e.g. engine handed to a notebook)
+        public void rename(String newName) {
+            String oldPrefix = this.name + "-";
+            this.name = newName;
+            for (Thread thread : longLived) {
+                String current = thread.getName();
+                if (current.startsWith(oldPrefix)) {
+                    thread.setName(newName + "-" + current.substring(oldPrefix.length()));
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRunningCount() {
+            return running.size();
+        }
+
+        // Cancels (interrupts) every task still running in this scope, the scope stays usable
+        public void cancelAll() {
+            for (Future<?> future : running) {
+                future.cancel(true);
+            }
+        }
+
+        // Cancels everything and stops accepting work
+        @Override
+        public void close() {
+            closed = true;
+            cancelAll();
+            for (Thread thread : longLived) {
+                thread.interrupt();
+            }
+            executor.shutdownNow();
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
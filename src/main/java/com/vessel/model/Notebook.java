@@ -2,21 +2,43 @@ package com.vessel.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.vessel.Kernel.KernelGovernor;
+import com.vessel.Kernel.KernelPool;
+import com.vessel.Kernel.KernelProfile;
 import com.vessel.Kernel.NotebookEngine;
 import com.vessel.Kernel.ExecutionResult;
+import com.vessel.Kernel.ResourceBudget;
 
-public class Notebook {
+public class Notebook implements KernelGovernor.Governed {
 
     private String name;
     private List<NotebookCell> cells = new ArrayList<>();
-    private transient NotebookEngine engine;
+    private ResourceBudget defaultBudget; // limits for cells without their own budget (null = ResourceBudget.DEFAULT)
+    private KernelProfile kernelProfile;  // heap / GC / engine of this notebook's kernel (null = KernelProfile.appDefault())
+    private String revision;              // new with every full save of the file; its journal names the revision it extends
+    private transient volatile NotebookEngine engine;
+    private transient volatile boolean hibernated;             // engine shut down by the KernelGovernor, wake() brings it back
+    private transient Consumer<NotebookEngine> engineListener; // told when the governor swaps the engine (any thread)
 
     public Notebook(String name) {
         this.name = name;
 
         initEngineIfNull();
     }
+
+    // A saved notebook back as a live one. No engine yet, like any loaded notebook (initEngineIfNull())
+    public Notebook(NotebookSnapshot saved) {
+        this.name = saved.name();
+        this.cells = new ArrayList<>(saved.cells().size());
+        for (NotebookSnapshot.Cell cell : saved.cells()) {
+            cells.add(new NotebookCell(cell));
+        }
+        this.defaultBudget = saved.defaultBudget();
+        this.kernelProfile = saved.kernelProfile();
+        this.revision = saved.revision();
+    }
     // Add a new cell to the notebook
     public void addCell(NotebookCell cell) {
         cells.add(cell);
@@ -38,6 +60,7 @@ public class Notebook {
     // updates the notebook name without creating a new object
     public void setName(String name) {
         this.name = name;
+        if (engine != null) engine.setNotebookName(name);
     }
 
 
@@ -51,23 +74,120 @@ public class Notebook {
         return name;
     }
 
+    // Immutable copy of what gets saved, for serialising off the FX thread (call it on the FX thread)
+    public NotebookSnapshot snapshot() {
+        List<NotebookSnapshot.Cell> copies = new ArrayList<>(cells.size());
+        for (NotebookCell cell : cells) {
+            copies.add(cell.snapshot());
+        }
+        return new NotebookSnapshot(name, copies, defaultBudget, kernelProfile, revision);
+    }
+
+    // Revision of the file this notebook was loaded from (null if it wasn't)
+    public String getRevision() {
+        return revision;
+    }
+
+    public ResourceBudget getDefaultBudget() {
+        return defaultBudget == null ? ResourceBudget.DEFAULT : defaultBudget;
+    }
+
+    public void setDefaultBudget(ResourceBudget defaultBudget) {
+        this.defaultBudget = defaultBudget;
+        if (engine != null) engine.setDefaultBudget(defaultBudget);
+    }
+
+    public KernelProfile getKernelProfile() {
+        return KernelProfile.orDefault(kernelProfile);
+    }
+
+    // Takes effect with the next kernel (restartEngine() to apply it now)
+    public void setKernelProfile(KernelProfile kernelProfile) {
+        this.kernelProfile = kernelProfile;
+    }
+
     // Engine realated code:
+    @Override
     public NotebookEngine getEngine() { return engine; }
 
+    public boolean isHibernated() { return hibernated; }
+
+    public void setEngineListener(Consumer<NotebookEngine> engineListener) {
+        this.engineListener = engineListener;
+    }
 
-    public void shutdownEngine(){
+    public synchronized void shutdownEngine(){
         if (this.engine == null) {
             return;
         }
+        KernelGovernor.getShared().release(this);
         if(this.engine.isExecuting()){
             this.engine.interrupt();
         }
         this.engine.shutdown();
         this.engine = null;
     }
+    // Swaps in a fresh pre-warmed engine and closes the old one in the background.
+    // Used by restart/open/new so the UI never waits on a kernel shutdown + boot.
+    public void restartEngine() {
+        KernelGovernor.getShared().admit(this); // outside our lock: admitting may hibernate other notebooks
+        synchronized (this) {
+            NotebookEngine old = this.engine;
+            hibernated = false;
+            this.engine = KernelPool.getShared().acquire(kernelProfile);
+            this.engine.setNotebookName(name);
+            this.engine.setDefaultBudget(defaultBudget);
+            KernelPool.getShared().retire(old);
+        }
+    }
+
+    // Hands this notebook's engine back for background shutdown (used when the notebook is replaced)
+    public synchronized void releaseEngine() {
+        KernelGovernor.getShared().release(this);
+        KernelPool.getShared().retire(this.engine);
+        this.engine = null;
+        hibernated = false;
+    }
+
     public void initEngineIfNull() {
-        if (this.engine == null) {
-            this.engine = new NotebookEngine();
+        if (this.engine != null) return;
+        // may hibernate the least recently used idle notebook to stay under the live kernel cap.
+        // Outside our lock: two notebooks admitting at once must not wait on each other's hibernate()
+        KernelGovernor.getShared().admit(this);
+        synchronized (this) {
+            if (this.engine != null) return;
+            hibernated = false;
+            // never blocks: a pooled (or new) engine boots its kernel in the background, the first run waits for it
+            this.engine = KernelPool.getShared().acquire(kernelProfile);
+            this.engine.setNotebookName(name);
+            this.engine.setDefaultBudget(defaultBudget);
         }
     }
+
+    // Governor side: gives the kernel up if it is still idle. Cells stay; wake() boots a new kernel later.
+    @Override
+    public synchronized boolean hibernate() {
+        NotebookEngine current = this.engine;
+        if (current == null || !current.isIdle()) return false;
+
+        this.engine = null;
+        hibernated = true;
+        KernelGovernor.getShared().release(this);
+        KernelPool.getShared().retire(current);
+        notifyEngineChanged(null);
+        return true;
+    }
+
+    // Brings a hibernated notebook's kernel back (fresh session, restore its definitions separately)
+    public NotebookEngine wake() {
+        initEngineIfNull();
+        NotebookEngine current = this.engine;
+        notifyEngineChanged(current);
+        return current;
+    }
+
+    private void notifyEngineChanged(NotebookEngine newEngine) {
+        Consumer<NotebookEngine> listener = engineListener;
+        if (listener != null) listener.accept(newEngine);
+    }
 }
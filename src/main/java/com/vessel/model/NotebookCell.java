@@ -2,6 +2,7 @@
 package com.vessel.model;
 
 import com.vessel.Kernel.ExecutionResult;
+import com.vessel.Kernel.ResourceBudget;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -9,14 +10,34 @@ import java.time.LocalDateTime;
 
 public class NotebookCell {
 
-    private final String id = UUID.randomUUID().toString();
+    private final String id;
     private CellType cellType;
     private String content;
     private int executionCount = 0;
     private ExecutionResult executionResult;
-    private LocalDateTime createdAt = LocalDateTime.now();
-    private LocalDateTime lastModifiedAt = LocalDateTime.now();
+    private LocalDateTime createdAt;
+    private LocalDateTime lastModifiedAt;
     private boolean markdownPreviewOn = false;
+    private ResourceBudget budget; // overrides the notebook's default budget (null = use the default)
+
+    public NotebookCell() {
+        this.id = UUID.randomUUID().toString();
+        this.createdAt = LocalDateTime.now();
+        this.lastModifiedAt = createdAt;
+    }
+
+    // A saved cell back as a live one (loading, journal replay)
+    public NotebookCell(NotebookSnapshot.Cell saved) {
+        this.id = saved.id() != null ? saved.id() : UUID.randomUUID().toString();
+        this.cellType = saved.cellType();
+        this.content = saved.content();
+        this.executionCount = saved.executionCount();
+        this.executionResult = saved.executionResult();
+        this.createdAt = saved.createdAt();
+        this.lastModifiedAt = saved.lastModifiedAt();
+        this.markdownPreviewOn = saved.markdownPreviewOn();
+        this.budget = saved.budget();
+    }
 
     public String getId() { return id; }
     public CellType getType() { return cellType; }
@@ -49,6 +70,15 @@ public class NotebookCell {
     public int getExecutionCount() { return executionCount; }
     public void incrementExecutionCount() { executionCount++; }
 
+    public ResourceBudget getBudget() { return budget; }
+    public void setBudget(ResourceBudget budget) { this.budget = budget; }
+
+    // The cell as it is right now, see NotebookSnapshot
+    public NotebookSnapshot.Cell snapshot() {
+        return new NotebookSnapshot.Cell(id, cellType, content, executionCount, executionResult,
+                createdAt, lastModifiedAt, markdownPreviewOn, budget);
+    }
+
     public boolean isMarkdownPreviewOn() {
         return markdownPreviewOn;
     }
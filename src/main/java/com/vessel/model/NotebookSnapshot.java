@@ -0,0 +1,35 @@
+package com.vessel.model;
+
+import com.vessel.Kernel.ExecutionResult;
+import com.vessel.Kernel.KernelProfile;
+import com.vessel.Kernel.ResourceBudget;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable copy of a notebook's persistent state, taken on the FX thread (see Notebook.snapshot()).
+ *
+ * Everything a cell holds is immutable already (strings, records, enums), so a snapshot only
+ * copies references: O(cells), no content is duplicated. A save can then serialise it on a
+ * background thread while the user keeps typing into the live cells.
+ *
+ * Components mirror the persisted fields of Notebook / NotebookCell (same names, same order),
+ * so a saved snapshot loads back as a Notebook.
+ */
+public record NotebookSnapshot(String name, List<Cell> cells, ResourceBudget defaultBudget,
+                               KernelProfile kernelProfile, String revision) {
+
+    public NotebookSnapshot {
+        cells = List.copyOf(cells);
+    }
+
+    public NotebookSnapshot withRevision(String revision) {
+        return new NotebookSnapshot(name, cells, defaultBudget, kernelProfile, revision);
+    }
+
+    public record Cell(String id, CellType cellType, String content, int executionCount,
+                       ExecutionResult executionResult, LocalDateTime createdAt, LocalDateTime lastModifiedAt,
+                       boolean markdownPreviewOn, ResourceBudget budget) {
+    }
+}
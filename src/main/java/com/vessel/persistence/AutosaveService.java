@@ -0,0 +1,340 @@
+package com.vessel.persistence;
+
+import com.vessel.core.VesselRuntime;
+import com.vessel.model.Notebook;
+import com.vessel.model.NotebookSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// saves notebooks in the background once the user stops editing them for a moment
+//
+// edits are reported with markDirty() (per cell, or null for the notebook itself: cell order, name,
+// settings). a notebook is saved once it has been quiet for quietMillis, or at the latest maxDelayMillis
+// after its first unsaved edit, so a long typing session still gets saved now and then.
+//
+// the model belongs to the FX thread: the snapshot (Notebook.snapshot(), O(cells)) is taken there through
+// modelThread, and only the immutable snapshot goes to the writer thread. saves of one notebook are
+// chained, so an older snapshot never lands on disk after a newer one. only notebooks with a file
+// (opened or saved once) are tracked.
+//
+// background saves only append what changed since the last one to the notebook's journal (see
+// NotebookJournal), so they cost O(change), not O(notebook). once the journal outgrows a quarter of the
+// notebook file (at least vessel.journal.compact.bytes) the next save compacts: it writes the whole file
+// and drops the journal. saveNow() always writes the whole file.
+public class AutosaveService {
+
+    private static final long DEFAULT_QUIET_MS = Long.getLong("vessel.autosave.quiet.ms", 2_000);
+    private static final long DEFAULT_MAX_DELAY_MS = Long.getLong("vessel.autosave.max.delay.ms", 30_000);
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
+    private static final long COMPACT_MIN_BYTES = Long.getLong("vessel.journal.compact.bytes", 256 * 1024);
+
+    private final NotebookPersistence persistence;
+    private final Executor modelThread;
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final Map<Notebook, Entry> entries = new IdentityHashMap<>(); // guarded by this
+    private final VesselRuntime.Scope runtime = VesselRuntime.newScope("autosave");
+    private final Executor writer = runtime::submit;
+    private volatile boolean closed = false;
+    private boolean debouncing = false; // debounce thread started, guarded by this
+
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong failedSaves = new AtomicLong();
+    private final AtomicLong coalescedEdits = new AtomicLong(); // edits that didn't need a save of their own
+    private final AtomicLong journalAppends = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    // unsaved state of one tracked notebook
+    private static final class Entry {
+        final Notebook notebook;
+        volatile Path file;
+        final Set<String> dirtyCells = new HashSet<>();
+        boolean notebookDirty;     // cell order, name, settings
+        long firstEditNanos;       // oldest unsaved edit
+        long lastEditNanos;        // quiet period counts from here
+        int edits;                 // since the last snapshot
+        boolean snapshotQueued;    // handed to modelThread, not taken yet
+        CompletableFuture<Boolean> writes = CompletableFuture.completedFuture(true);
+
+        // writer side (one write at a time, in chain order): what the file plus its journal hold
+        volatile NotebookSnapshot written; // null = unknown, the next save writes the whole file
+        volatile Path writtenFile;
+        volatile long fileBytes;
+
+        Entry(Notebook notebook, Path file) {
+            this.notebook = notebook;
+            this.file = file;
+        }
+
+        boolean isDirty() {
+            return notebookDirty || !dirtyCells.isEmpty();
+        }
+    }
+
+    public AutosaveService(NotebookPersistence persistence, Executor modelThread) {
+        this(persistence, modelThread, DEFAULT_QUIET_MS, DEFAULT_MAX_DELAY_MS);
+    }
+
+    // modelThread runs snapshots where the model is edited (Platform::runLater)
+    public AutosaveService(NotebookPersistence persistence, Executor modelThread, long quietMillis, long maxDelayMillis) {
+        this.persistence = persistence;
+        this.modelThread = modelThread;
+        this.quietMillis = Math.max(0, quietMillis);
+        this.maxDelayMillis = Math.max(this.quietMillis, maxDelayMillis);
+    }
+
+    // autosaves the notebook to `file` from now on (also after "save as": the new file replaces the old one).
+    // call on the model thread, right after the notebook was loaded from or saved to `file`
+    public void track(Notebook notebook, Path file) {
+        synchronized (this) {
+            Entry entry = entries.get(notebook);
+            if (entry != null) {
+                entry.file = file; // differs from writtenFile, so the next save writes the whole file
+                return;
+            }
+        }
+        Entry entry = new Entry(notebook, file);
+        // the journal only has to carry what changes from here on. a journal left by a crash was
+        // replayed on load; the first save folds it into the file
+        if (Files.exists(file) && !Files.exists(NotebookJournal.pathFor(file.toAbsolutePath()))) {
+            entry.written = notebook.snapshot();
+            entry.writtenFile = file;
+            entry.fileBytes = sizeOf(file);
+        }
+        synchronized (this) {
+            entries.putIfAbsent(notebook, entry);
+            // started with the first tracked notebook, not in the constructor (no 'this' escape)
+            if (!debouncing && !closed) {
+                debouncing = true;
+                runtime.startThread("debounce", this::debounceLoop);
+            }
+        }
+    }
+
+    // stops autosaving the notebook; unsaved edits are dropped (saveNow() first to keep them)
+    public synchronized void untrack(Notebook notebook) {
+        entries.remove(notebook);
+    }
+
+    public synchronized boolean isTracked(Notebook notebook) {
+        return entries.containsKey(notebook);
+    }
+
+    // records an edit; cheap enough for every keystroke. cellId null = the notebook itself changed
+    public void markDirty(Notebook notebook, String cellId) {
+        synchronized (this) {
+            Entry entry = entries.get(notebook);
+            if (entry == null) return;
+            long now = System.nanoTime();
+            if (!entry.isDirty()) entry.firstEditNanos = now;
+            entry.lastEditNanos = now;
+            entry.edits++;
+            if (cellId == null) {
+                entry.notebookDirty = true;
+            } else {
+                entry.dirtyCells.add(cellId);
+            }
+            notifyAll();
+        }
+    }
+
+    public synchronized boolean isDirty(Notebook notebook) {
+        Entry entry = entries.get(notebook);
+        return entry != null && entry.isDirty();
+    }
+
+    // snapshot now and write the whole file in the background; call on the model thread.
+    // completes with false if the save failed
+    public CompletableFuture<Boolean> saveNow(Notebook notebook) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(notebook);
+        }
+        if (entry == null) return CompletableFuture.completedFuture(false);
+        return saveSnapshot(entry, true);
+    }
+
+    // app exit: saves every notebook with unsaved edits and waits for the writes; call on the model thread
+    public void shutdown() {
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+        List<Entry> dirty = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Entry entry : entries.values()) {
+                if (entry.isDirty()) dirty.add(entry);
+                pending.add(entry.writes);
+            }
+            notifyAll();
+        }
+        for (Entry entry : dirty) {
+            pending.add(saveSnapshot(entry, false)); // an append is quick; the next load replays it
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("[AutosaveService] Saves still running after " + FLUSH_TIMEOUT_MS + " ms, giving up");
+        } catch (Exception e) {
+            System.err.println("[AutosaveService] Final save failed: " + e.getMessage());
+        }
+        runtime.close();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new java.util.HashMap<>();
+        synchronized (this) {
+            stats.put("trackedNotebooks", entries.size());
+            stats.put("dirtyNotebooks", entries.values().stream().filter(Entry::isDirty).count());
+        }
+        stats.put("saves", saves.get());
+        stats.put("failedSaves", failedSaves.get());
+        stats.put("coalescedEdits", coalescedEdits.get());
+        stats.put("journalAppends", journalAppends.get());
+        stats.put("compactions", compactions.get());
+        stats.put("quietMs", quietMillis);
+        return stats;
+    }
+
+    // on the model thread: takes the snapshot, clears the dirty state it covers and chains the write
+    private CompletableFuture<Boolean> saveSnapshot(Entry entry, boolean wholeFile) {
+        NotebookSnapshot snapshot = entry.notebook.snapshot();
+        Set<String> cells;
+        boolean notebookDirty;
+        Path file;
+        synchronized (this) {
+            entry.snapshotQueued = false;
+            cells = new HashSet<>(entry.dirtyCells);
+            notebookDirty = entry.notebookDirty;
+            entry.dirtyCells.clear();
+            entry.notebookDirty = false;
+            coalescedEdits.addAndGet(Math.max(0, entry.edits - 1));
+            entry.edits = 0;
+            file = entry.file;
+        }
+        // handle, not thenApply: one save that blew up must not stop every later one
+        CompletableFuture<Boolean> write = entry.writes.handleAsync(
+                (previous, error) -> write(entry, snapshot, file, wholeFile), writer);
+        write.whenComplete((ok, error) -> afterWrite(entry, error == null && ok, cells, notebookDirty));
+        synchronized (this) {
+            entry.writes = write;
+        }
+        return write;
+    }
+
+    // on the writer: appends what changed since the last write to the journal, or writes the whole file
+    private boolean write(Entry entry, NotebookSnapshot snapshot, Path file, boolean wholeFile) {
+        NotebookSnapshot written = entry.written;
+        if (wholeFile || written == null || !file.equals(entry.writtenFile)) {
+            return compact(entry, snapshot, file);
+        }
+        List<NotebookJournal.Change> changes = NotebookJournal.diff(written, snapshot);
+        if (changes.isEmpty()) return true;
+        long size = persistence.appendJournal(changes, written.revision(), file.toString());
+        if (size < 0) {
+            entry.written = null; // may have left half a record; start over from a whole file
+            return false;
+        }
+        journalAppends.incrementAndGet();
+        entry.written = snapshot;
+        if (size > Math.max(COMPACT_MIN_BYTES, entry.fileBytes / 4)) {
+            compact(entry, snapshot, file); // the edits are safe in the journal even if this fails
+        }
+        return true;
+    }
+
+    private boolean compact(Entry entry, NotebookSnapshot snapshot, Path file) {
+        NotebookSnapshot revised = snapshot.withRevision(NotebookPersistence.newRevision());
+        if (!persistence.writeFile(revised, file.toString())) {
+            // the file may already be the new revision with the old journal gone; appending to that would be lost
+            entry.written = null;
+            return false;
+        }
+        compactions.incrementAndGet();
+        entry.written = revised;
+        entry.writtenFile = file;
+        entry.fileBytes = sizeOf(file);
+        return true;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // a failed save puts its edits back, they go out with the next one
+    private void afterWrite(Entry entry, boolean ok, Set<String> cells, boolean notebookDirty) {
+        if (ok) {
+            saves.incrementAndGet();
+            return;
+        }
+        failedSaves.incrementAndGet();
+        synchronized (this) {
+            if (!entry.isDirty()) entry.firstEditNanos = System.nanoTime();
+            entry.lastEditNanos = System.nanoTime();
+            entry.dirtyCells.addAll(cells);
+            entry.notebookDirty |= notebookDirty;
+            notifyAll();
+        }
+    }
+
+    private void debounceLoop() {
+        while (true) {
+            List<Entry> due = new ArrayList<>();
+            synchronized (this) {
+                try {
+                    long waitNanos = collectDue(due);
+                    if (closed) return;
+                    if (due.isEmpty()) {
+                        if (waitNanos == Long.MAX_VALUE) {
+                            wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                        }
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            for (Entry entry : due) {
+                modelThread.execute(() -> {
+                    if (!closed) saveSnapshot(entry, false);
+                });
+            }
+        }
+    }
+
+    // caller holds the lock. fills `due` and returns how long until the next entry gets due
+    private long collectDue(List<Entry> due) {
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Entry entry : entries.values()) {
+            if (!entry.isDirty() || entry.snapshotQueued) continue;
+            long quietAt = entry.lastEditNanos + TimeUnit.MILLISECONDS.toNanos(quietMillis);
+            long latestAt = entry.firstEditNanos + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+            long dueAt = Math.min(quietAt, latestAt);
+            if (dueAt - now <= 0) {
+                entry.snapshotQueued = true;
+                due.add(entry);
+            } else {
+                next = Math.min(next, dueAt - now);
+            }
+        }
+        return next;
+    }
+}
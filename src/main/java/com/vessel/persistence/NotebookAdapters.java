@@ -0,0 +1,522 @@
+package com.vessel.persistence;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.vessel.Kernel.ExecutionMetrics;
+import com.vessel.Kernel.ExecutionResult;
+import com.vessel.Kernel.KernelProfile;
+import com.vessel.Kernel.ResourceBudget;
+import com.vessel.Kernel.StopReport;
+import com.vessel.Kernel.TruncatedOutput;
+import com.vessel.model.CellType;
+import com.vessel.model.Notebook;
+import com.vessel.model.NotebookCell;
+import com.vessel.model.NotebookSnapshot;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// hand-written streaming gson adapters for everything a notebook file holds
+//
+// opening a notebook is on the critical path, and gson's reflective adapters look up and set every
+// field of every cell through reflection. these read the token stream straight into the records
+// (cells and notebooks through NotebookSnapshot and its constructors) and parse timestamps without
+// DateTimeFormatter.
+//
+// fields are written in declaration order, as the reflective adapters did, so files don't change.
+// nulls are left out (gson's default). unknown fields are skipped, so a file written by a newer
+// version still loads; missing ones get the same defaults gson gave them (null / 0 / false).
+final class NotebookAdapters {
+
+    private NotebookAdapters() {}
+
+    static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(LocalDateTime.class, DATE_TIME)
+                .registerTypeAdapter(ResourceBudget.class, BUDGET)
+                .registerTypeAdapter(KernelProfile.class, PROFILE)
+                .registerTypeAdapter(TruncatedOutput.class, TRUNCATED)
+                .registerTypeAdapter(ExecutionMetrics.class, METRICS)
+                .registerTypeAdapter(StopReport.class, STOP_REPORT)
+                .registerTypeAdapter(ExecutionResult.class, RESULT)
+                .registerTypeAdapter(NotebookSnapshot.Cell.class, CELL)
+                .registerTypeAdapter(NotebookSnapshot.class, NOTEBOOK)
+                .registerTypeAdapter(NotebookCell.class, LIVE_CELL)
+                .registerTypeAdapter(Notebook.class, LIVE_NOTEBOOK);
+    }
+
+    // === Values ===
+
+    static final TypeAdapter<LocalDateTime> DATE_TIME = new TypeAdapter<LocalDateTime>() {
+        @Override
+        public void write(JsonWriter out, LocalDateTime value) throws IOException {
+            out.value(value.toString());
+        }
+
+        @Override
+        public LocalDateTime read(JsonReader in) throws IOException {
+            return parseDateTime(in.nextString());
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<ResourceBudget> BUDGET = new TypeAdapter<ResourceBudget>() {
+        @Override
+        public void write(JsonWriter out, ResourceBudget value) throws IOException {
+            out.beginObject();
+            out.name("wallTimeMs").value(value.wallTimeMs());
+            out.name("cpuTimeMs").value(value.cpuTimeMs());
+            out.name("allocatedBytes").value(value.allocatedBytes());
+            out.endObject();
+        }
+
+        @Override
+        public ResourceBudget read(JsonReader in) throws IOException {
+            long wallTimeMs = 0;
+            long cpuTimeMs = 0;
+            long allocatedBytes = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "wallTimeMs" -> wallTimeMs = readLong(in);
+                    case "cpuTimeMs" -> cpuTimeMs = readLong(in);
+                    case "allocatedBytes" -> allocatedBytes = readLong(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ResourceBudget(wallTimeMs, cpuTimeMs, allocatedBytes);
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<KernelProfile> PROFILE = new TypeAdapter<KernelProfile>() {
+        @Override
+        public void write(JsonWriter out, KernelProfile value) throws IOException {
+            out.beginObject();
+            out.name("maxHeapMb").value(value.maxHeapMb());
+            out.name("gc").value(enumName(value.gc()));
+            out.name("vmOptions").beginArray();
+            for (String option : value.vmOptions()) {
+                out.value(option);
+            }
+            out.endArray();
+            out.name("engine").value(enumName(value.engine()));
+            out.name("memoryLimitPercent").value(value.memoryLimitPercent());
+            out.endObject();
+        }
+
+        @Override
+        public KernelProfile read(JsonReader in) throws IOException {
+            long maxHeapMb = 0;
+            KernelProfile.GarbageCollector gc = null;
+            List<String> vmOptions = null;
+            KernelProfile.Engine engine = null;
+            int memoryLimitPercent = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "maxHeapMb" -> maxHeapMb = readLong(in);
+                    case "gc" -> gc = readEnum(in, KernelProfile.GarbageCollector.class);
+                    case "vmOptions" -> vmOptions = readStrings(in);
+                    case "engine" -> engine = readEnum(in, KernelProfile.Engine.class);
+                    case "memoryLimitPercent" -> memoryLimitPercent = readInt(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new KernelProfile(maxHeapMb, gc, vmOptions, engine, memoryLimitPercent);
+        }
+    }.nullSafe();
+
+    // === Execution results ===
+
+    static final TypeAdapter<TruncatedOutput> TRUNCATED = new TypeAdapter<TruncatedOutput>() {
+        @Override
+        public void write(JsonWriter out, TruncatedOutput value) throws IOException {
+            out.beginObject();
+            out.name("truncatedLines").value(value.truncatedLines());
+            out.name("totalBytes").value(value.totalBytes());
+            // not spillPath: the temp file only lives as long as the session that wrote it
+            out.endObject();
+        }
+
+        @Override
+        public TruncatedOutput read(JsonReader in) throws IOException {
+            long truncatedLines = 0;
+            long totalBytes = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "truncatedLines" -> truncatedLines = readLong(in);
+                    case "totalBytes" -> totalBytes = readLong(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new TruncatedOutput(truncatedLines, totalBytes, null);
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<ExecutionMetrics> METRICS = new TypeAdapter<ExecutionMetrics>() {
+        @Override
+        public void write(JsonWriter out, ExecutionMetrics value) throws IOException {
+            out.beginObject();
+            out.name("compileTimeMs").value(value.compileTimeMs());
+            out.name("runTimeMs").value(value.runTimeMs());
+            out.name("cpuTimeMs").value(value.cpuTimeMs());
+            out.name("allocatedBytes").value(value.allocatedBytes());
+            out.name("gcCount").value(value.gcCount());
+            out.name("gcPauseMs").value(value.gcPauseMs());
+            out.name("snippetsEvaluated").value(value.snippetsEvaluated());
+            out.name("evalCalls").value(value.evalCalls());
+            out.name("outputBytes").value(value.outputBytes());
+            out.endObject();
+        }
+
+        @Override
+        public ExecutionMetrics read(JsonReader in) throws IOException {
+            long compileTimeMs = 0;
+            long runTimeMs = 0;
+            long cpuTimeMs = 0;
+            long allocatedBytes = 0;
+            long gcCount = 0;
+            long gcPauseMs = 0;
+            int snippetsEvaluated = 0;
+            int evalCalls = 0;
+            long outputBytes = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "compileTimeMs" -> compileTimeMs = readLong(in);
+                    case "runTimeMs" -> runTimeMs = readLong(in);
+                    case "cpuTimeMs" -> cpuTimeMs = readLong(in);
+                    case "allocatedBytes" -> allocatedBytes = readLong(in);
+                    case "gcCount" -> gcCount = readLong(in);
+                    case "gcPauseMs" -> gcPauseMs = readLong(in);
+                    case "snippetsEvaluated" -> snippetsEvaluated = readInt(in);
+                    case "evalCalls" -> evalCalls = readInt(in);
+                    case "outputBytes" -> outputBytes = readLong(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ExecutionMetrics(compileTimeMs, runTimeMs, cpuTimeMs, allocatedBytes,
+                    gcCount, gcPauseMs, snippetsEvaluated, evalCalls, outputBytes);
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<StopReport> STOP_REPORT = new TypeAdapter<StopReport>() {
+        @Override
+        public void write(JsonWriter out, StopReport value) throws IOException {
+            out.beginObject();
+            out.name("outcome").value(enumName(value.outcome()));
+            out.name("stopMillis").value(value.stopMillis());
+            out.name("threadDump").value(value.threadDump());
+            out.endObject();
+        }
+
+        @Override
+        public StopReport read(JsonReader in) throws IOException {
+            StopReport.Outcome outcome = null;
+            long stopMillis = 0;
+            String threadDump = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "outcome" -> outcome = readEnum(in, StopReport.Outcome.class);
+                    case "stopMillis" -> stopMillis = readLong(in);
+                    case "threadDump" -> threadDump = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new StopReport(outcome, stopMillis, threadDump);
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<ExecutionResult> RESULT = new TypeAdapter<ExecutionResult>() {
+        @Override
+        public void write(JsonWriter out, ExecutionResult value) throws IOException {
+            out.beginObject();
+            out.name("output").value(value.output());
+            out.name("error").value(value.error());
+            out.name("executionTimeMs").value(value.executionTimeMs());
+            out.name("success").value(value.success());
+            out.name("truncated");
+            TRUNCATED.write(out, value.truncated());
+            out.name("budgetExceeded").value(enumName(value.budgetExceeded()));
+            out.name("metrics");
+            METRICS.write(out, value.metrics());
+            out.name("stopReport");
+            STOP_REPORT.write(out, value.stopReport());
+            out.endObject();
+        }
+
+        @Override
+        public ExecutionResult read(JsonReader in) throws IOException {
+            String output = null;
+            String error = null;
+            long executionTimeMs = 0;
+            boolean success = false;
+            TruncatedOutput truncated = null;
+            ResourceBudget.Kind budgetExceeded = null;
+            ExecutionMetrics metrics = null;
+            StopReport stopReport = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "output" -> output = readString(in);
+                    case "error" -> error = readString(in);
+                    case "executionTimeMs" -> executionTimeMs = readLong(in);
+                    case "success" -> success = readBoolean(in);
+                    case "truncated" -> truncated = TRUNCATED.read(in);
+                    case "budgetExceeded" -> budgetExceeded = readEnum(in, ResourceBudget.Kind.class);
+                    case "metrics" -> metrics = METRICS.read(in);
+                    case "stopReport" -> stopReport = STOP_REPORT.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ExecutionResult(output, error, executionTimeMs, success,
+                    truncated, budgetExceeded, metrics, stopReport);
+        }
+    }.nullSafe();
+
+    // === Cells and notebooks ===
+
+    static final TypeAdapter<NotebookSnapshot.Cell> CELL = new TypeAdapter<NotebookSnapshot.Cell>() {
+        @Override
+        public void write(JsonWriter out, NotebookSnapshot.Cell value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.id());
+            out.name("cellType").value(enumName(value.cellType()));
+            out.name("content").value(value.content());
+            out.name("executionCount").value(value.executionCount());
+            out.name("executionResult");
+            RESULT.write(out, value.executionResult());
+            out.name("createdAt");
+            DATE_TIME.write(out, value.createdAt());
+            out.name("lastModifiedAt");
+            DATE_TIME.write(out, value.lastModifiedAt());
+            out.name("markdownPreviewOn").value(value.markdownPreviewOn());
+            out.name("budget");
+            BUDGET.write(out, value.budget());
+            out.endObject();
+        }
+
+        @Override
+        public NotebookSnapshot.Cell read(JsonReader in) throws IOException {
+            String id = null;
+            CellType cellType = null;
+            String content = null;
+            int executionCount = 0;
+            ExecutionResult executionResult = null;
+            LocalDateTime createdAt = null;
+            LocalDateTime lastModifiedAt = null;
+            boolean markdownPreviewOn = false;
+            ResourceBudget budget = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> id = readString(in);
+                    case "cellType" -> cellType = readEnum(in, CellType.class);
+                    case "content" -> content = readString(in);
+                    case "executionCount" -> executionCount = readInt(in);
+                    case "executionResult" -> executionResult = RESULT.read(in);
+                    case "createdAt" -> createdAt = DATE_TIME.read(in);
+                    case "lastModifiedAt" -> lastModifiedAt = DATE_TIME.read(in);
+                    case "markdownPreviewOn" -> markdownPreviewOn = readBoolean(in);
+                    case "budget" -> budget = BUDGET.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new NotebookSnapshot.Cell(id, cellType, content, executionCount, executionResult,
+                    createdAt, lastModifiedAt, markdownPreviewOn, budget);
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<NotebookSnapshot> NOTEBOOK = new TypeAdapter<NotebookSnapshot>() {
+        @Override
+        public void write(JsonWriter out, NotebookSnapshot value) throws IOException {
+            out.beginObject();
+            out.name("name").value(value.name());
+            out.name("cells").beginArray();
+            for (NotebookSnapshot.Cell cell : value.cells()) {
+                CELL.write(out, cell);
+            }
+            out.endArray();
+            out.name("defaultBudget");
+            BUDGET.write(out, value.defaultBudget());
+            out.name("kernelProfile");
+            PROFILE.write(out, value.kernelProfile());
+            out.name("revision").value(value.revision());
+            out.endObject();
+        }
+
+        @Override
+        public NotebookSnapshot read(JsonReader in) throws IOException {
+            String name = null;
+            List<NotebookSnapshot.Cell> cells = new ArrayList<>();
+            ResourceBudget defaultBudget = null;
+            KernelProfile kernelProfile = null;
+            String revision = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name" -> name = readString(in);
+                    case "cells" -> readCells(in, cells);
+                    case "defaultBudget" -> defaultBudget = BUDGET.read(in);
+                    case "kernelProfile" -> kernelProfile = PROFILE.read(in);
+                    case "revision" -> revision = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new NotebookSnapshot(name, cells, defaultBudget, kernelProfile, revision);
+        }
+    }.nullSafe();
+
+    // the live model goes through its snapshot both ways
+    static final TypeAdapter<NotebookCell> LIVE_CELL = new TypeAdapter<NotebookCell>() {
+        @Override
+        public void write(JsonWriter out, NotebookCell value) throws IOException {
+            CELL.write(out, value.snapshot());
+        }
+
+        @Override
+        public NotebookCell read(JsonReader in) throws IOException {
+            return new NotebookCell(CELL.read(in));
+        }
+    }.nullSafe();
+
+    static final TypeAdapter<Notebook> LIVE_NOTEBOOK = new TypeAdapter<Notebook>() {
+        @Override
+        public void write(JsonWriter out, Notebook value) throws IOException {
+            NOTEBOOK.write(out, value.snapshot());
+        }
+
+        @Override
+        public Notebook read(JsonReader in) throws IOException {
+            return new Notebook(NOTEBOOK.read(in));
+        }
+    }.nullSafe();
+
+    // === Helpers ===
+
+    private static void readCells(JsonReader in, List<NotebookSnapshot.Cell> cells) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            NotebookSnapshot.Cell cell = CELL.read(in);
+            if (cell != null) cells.add(cell);
+        }
+        in.endArray();
+    }
+
+    // json null reads as gson's defaults: null for objects, 0 / false for primitives
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+
+    // unknown constants (from a newer version) read as null, like gson's enum adapter
+    private static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        String name = readString(in);
+        if (name == null) return null;
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static String enumName(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    // LocalDateTime.toString() output (uuuu-MM-ddTHH:mm[:ss[.fraction]]) read by position; anything
+    // else (years past 9999, offsets) goes through LocalDateTime.parse()
+    static LocalDateTime parseDateTime(String text) {
+        int length = text.length();
+        if (length < 16 || length == 17 || length == 18 || length == 20 || length > 29
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':'
+                || (length > 16 && text.charAt(16) != ':') || (length > 19 && text.charAt(19) != '.')) {
+            return LocalDateTime.parse(text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = digits(text, 11, 13);
+        int minute = digits(text, 14, 16);
+        int second = length > 16 ? digits(text, 17, 19) : 0;
+        int nano = length > 19 ? digits(text, 20, length) : 0;
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            return LocalDateTime.parse(text);
+        }
+        if (length > 19) nano *= FRACTION_SCALE[29 - length]; // ".5" is 500_000_000 ns
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private static final int[] FRACTION_SCALE = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+    // -1 if the range isn't all digits
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
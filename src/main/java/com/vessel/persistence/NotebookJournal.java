@@ -0,0 +1,262 @@
+package com.vessel.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.vessel.Kernel.KernelProfile;
+import com.vessel.Kernel.ResourceBudget;
+import com.vessel.model.Notebook;
+import com.vessel.model.NotebookCell;
+import com.vessel.model.NotebookSnapshot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// append-only edit log next to a notebook file (<file>.journal), one compact json record per line
+//
+// the notebook file is the base, the journal holds what changed since it was written: cell inserts,
+// edits (incl. outputs), moves, deletes and notebook settings. a save appends only the changed cells,
+// so it costs O(change) instead of rewriting the whole notebook. a full save (compaction) writes a new
+// base and deletes the journal; loading replays the journal on top of the base.
+//
+// the first record names the revision of the base file the journal extends; a journal left behind by
+// a crash between writing a new base and deleting it doesn't match the new file and is skipped. a torn
+// last line (crash mid-append) is skipped too.
+final class NotebookJournal {
+
+    private NotebookJournal() {}
+
+    // one line of the journal; unused components are null and left out of the json
+    record Change(String op, String id, String after, NotebookSnapshot.Cell cell, String name,
+                  ResourceBudget defaultBudget, KernelProfile kernelProfile) {
+
+        static Change insert(NotebookSnapshot.Cell cell, String after) {
+            return new Change("insert", cell.id(), after, cell, null, null, null);
+        }
+
+        static Change edit(NotebookSnapshot.Cell cell) {
+            return new Change("edit", cell.id(), null, cell, null, null, null);
+        }
+
+        static Change move(String id, String after) {
+            return new Change("move", id, after, null, null, null, null);
+        }
+
+        static Change delete(String id) {
+            return new Change("delete", id, null, null, null, null, null);
+        }
+
+        static Change base(String revision) {
+            return new Change("base", revision, null, null, null, null, null);
+        }
+
+        static Change meta(NotebookSnapshot notebook) {
+            return new Change("meta", null, null, null, notebook.name(), notebook.defaultBudget(), notebook.kernelProfile());
+        }
+    }
+
+    static Path pathFor(Path notebookFile) {
+        return notebookFile.resolveSibling(notebookFile.getFileName() + ".journal");
+    }
+
+    // records that turn `before` into `after`. cells are compared with equals(), which is cheap for the
+    // unchanged ones: their strings and results are the same instances in both snapshots
+    static List<Change> diff(NotebookSnapshot before, NotebookSnapshot after) {
+        List<Change> changes = new ArrayList<>();
+        if (!Objects.equals(before.name(), after.name())
+                || !Objects.equals(before.defaultBudget(), after.defaultBudget())
+                || !Objects.equals(before.kernelProfile(), after.kernelProfile())) {
+            changes.add(Change.meta(after));
+        }
+
+        Map<String, Integer> oldIndex = new HashMap<>();
+        for (int i = 0; i < before.cells().size(); i++) {
+            oldIndex.put(before.cells().get(i).id(), i);
+        }
+        Set<String> present = new HashSet<>();
+        List<Integer> keptOldPositions = new ArrayList<>(); // cells in both, in new order
+        for (NotebookSnapshot.Cell cell : after.cells()) {
+            present.add(cell.id());
+            Integer old = oldIndex.get(cell.id());
+            if (old != null) keptOldPositions.add(old);
+        }
+        for (NotebookSnapshot.Cell cell : before.cells()) {
+            if (!present.contains(cell.id())) changes.add(Change.delete(cell.id()));
+        }
+
+        // the longest run that kept its relative order stays put, everything else moves.
+        // emitted in new order, so a cell's predecessor is already in place when it is replayed
+        boolean[] stays = longestIncreasing(keptOldPositions);
+        String previous = null;
+        int kept = 0;
+        for (NotebookSnapshot.Cell cell : after.cells()) {
+            Integer old = oldIndex.get(cell.id());
+            if (old == null) {
+                changes.add(Change.insert(cell, previous));
+            } else {
+                if (!stays[kept++]) changes.add(Change.move(cell.id(), previous));
+                if (!before.cells().get(old).equals(cell)) changes.add(Change.edit(cell));
+            }
+            previous = cell.id();
+        }
+        return changes;
+    }
+
+    // appends the records with one write + fsync, returns the journal's size afterwards.
+    // `revision` is the base file's, it goes in front of the first record
+    static long append(Path journal, String revision, List<Change> changes, Gson gson) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            StringBuilder lines = new StringBuilder();
+            if (channel.size() == 0) {
+                lines.append(gson.toJson(Change.base(revision))).append('\n');
+            }
+            for (Change change : changes) {
+                lines.append(gson.toJson(change)).append('\n');
+            }
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(lines.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    // applies the journal (if there is one) to a notebook just read from its base file.
+    // returns the number of records applied
+    static int replay(Path journal, Notebook notebook, Gson gson) throws IOException {
+        if (!Files.exists(journal)) return 0;
+        int applied = 0;
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            if (!matchesBase(reader.readLine(), notebook, gson)) {
+                System.err.println("[NotebookJournal] " + journal + " belongs to another version of the notebook, ignored");
+                return 0;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    apply(gson.fromJson(line, JsonObject.class), notebook, gson);
+                    applied++;
+                } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+                    skipped++; // torn write
+                }
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("[NotebookJournal] Skipped " + skipped + " unreadable records in " + journal);
+        }
+        return applied;
+    }
+
+    // true if the header names the revision the notebook was read with
+    private static boolean matchesBase(String header, Notebook notebook, Gson gson) {
+        if (header == null) return false;
+        try {
+            JsonObject record = gson.fromJson(header, JsonObject.class);
+            return "base".equals(string(record, "op")) && Objects.equals(string(record, "id"), notebook.getRevision());
+        } catch (JsonParseException e) {
+            return false;
+        }
+    }
+
+    private static void apply(JsonObject record, Notebook notebook, Gson gson) {
+        List<NotebookCell> cells = notebook.getCells();
+        String id = string(record, "id");
+        String after = string(record, "after");
+        switch (record.get("op").getAsString()) {
+            case "insert" -> {
+                NotebookCell cell = gson.fromJson(record.get("cell"), NotebookCell.class);
+                cells.removeIf(existing -> existing.getId().equals(id));
+                cells.add(positionAfter(cells, after), cell);
+            }
+            case "edit" -> {
+                NotebookCell cell = gson.fromJson(record.get("cell"), NotebookCell.class);
+                int index = indexOf(cells, id);
+                if (index >= 0) {
+                    cells.set(index, cell);
+                } else {
+                    cells.add(cell);
+                }
+            }
+            case "move" -> {
+                int index = indexOf(cells, id);
+                if (index >= 0) {
+                    NotebookCell cell = cells.remove(index);
+                    cells.add(positionAfter(cells, after), cell);
+                }
+            }
+            case "delete" -> cells.removeIf(existing -> existing.getId().equals(id));
+            case "meta" -> {
+                notebook.setName(string(record, "name"));
+                notebook.setDefaultBudget(gson.fromJson(record.get("defaultBudget"), ResourceBudget.class));
+                notebook.setKernelProfile(gson.fromJson(record.get("kernelProfile"), KernelProfile.class));
+            }
+            default -> throw new IllegalStateException("Unknown journal record: " + record.get("op"));
+        }
+    }
+
+    // after == null: first cell; a predecessor that is gone: the end
+    private static int positionAfter(List<NotebookCell> cells, String after) {
+        if (after == null) return 0;
+        int index = indexOf(cells, after);
+        return index >= 0 ? index + 1 : cells.size();
+    }
+
+    private static int indexOf(List<NotebookCell> cells, String id) {
+        for (int i = 0; i < cells.size(); i++) {
+            if (cells.get(i).getId().equals(id)) return i;
+        }
+        return -1;
+    }
+
+    private static String string(JsonObject record, String member) {
+        JsonElement element = record.get(member);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    // marks one longest strictly increasing subsequence, O(n log n)
+    private static boolean[] longestIncreasing(List<Integer> values) {
+        int n = values.size();
+        int[] tails = new int[n];    // index of the smallest tail of each run length
+        int[] previous = new int[n]; // predecessor of each element in its run
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int value = values.get(i);
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values.get(tails[mid]) < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) length++;
+        }
+        boolean[] stays = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stays[i] = true;
+        }
+        return stays;
+    }
+}
@@ -2,39 +2,49 @@ package com.vessel.persistence;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import com.vessel.Kernel.KernelMetrics;
 import com.vessel.model.Notebook;
+import com.vessel.model.NotebookSnapshot;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
-import java.time.LocalDateTime;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
 
 // gson-based json persistence layer for saving and loading notebook objects
 public class NotebookPersistence {
 
     private static final String ROOT = "notebooks/";
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
     private final Gson gson;
+    private final Gson journalGson; // same mapping, one record per line
+    private final KernelMetrics metrics = KernelMetrics.global(); // save/load latency histograms
 
     public NotebookPersistence() {
-        // configure gson with support for localdatetime serialization and pretty printing
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(LocalDateTime.class,
-                        (JsonSerializer<LocalDateTime>) (src, typeOfSrc, context) ->
-                                new JsonPrimitive(src.toString()))
-                .registerTypeAdapter(LocalDateTime.class,
-                        (JsonDeserializer<LocalDateTime>) (json, typeOfT, context) ->
-                                LocalDateTime.parse(json.getAsString()))
-                .setPrettyPrinting()
-                .create();
+        // notebook files are pretty printed, journal records are not
+        this.gson = gsonBuilder().setPrettyPrinting().create();
+        this.journalGson = gsonBuilder().create();
 
         ensureRoot();
     }
 
+    // configure gson with the hand-written model adapters (no reflection, see NotebookAdapters)
+    private static GsonBuilder gsonBuilder() {
+        return NotebookAdapters.register(new GsonBuilder());
+    }
+
     // makes sure the notebooks/ directory exists before saving any files
     private void ensureRoot() {
         File dir = new File(ROOT);
@@ -51,37 +61,124 @@ public class NotebookPersistence {
         return cleaned;
     }
 
-    // converts the entire notebook object into json and writes it to disk
+    // saves the notebook as notebooks/<name>.json
     // returns true if saving worked, false if any io error happened
     public boolean save(Notebook notebook) {
-        String cleanName = sanitize(notebook.getName());
-        File file = new File(ROOT + cleanName + ".json");
+        return saveToPath(notebook, ROOT + sanitize(notebook.getName()) + ".json");
+    }
 
-        try (FileWriter writer = new FileWriter(file)) {
-            // write notebook object as json into the file
-            gson.toJson(notebook, writer);
+    public boolean saveToPath(Notebook notebook, String fullPath) {
+        return saveToPath(notebook.snapshot(), fullPath);
+    }
+
+    public boolean saveToPath(NotebookSnapshot notebook, String fullPath) {
+        return writeFile(notebook.withRevision(newRevision()), fullPath);
+    }
+
+    // every full save gets a new revision, so a journal left over from an older file is never replayed onto it
+    static String newRevision() {
+        return UUID.randomUUID().toString();
+    }
+
+    // streams the notebook as json into a temp file next to the target, fsyncs it and moves it over
+    // the target in one step: a crash mid-save leaves the previous version intact, and the json is
+    // never held in memory as a whole. the journal is dropped once the new file is in place
+    boolean writeFile(NotebookSnapshot notebook, String fullPath) {
+        long start = System.nanoTime();
+        Path target = Path.of(fullPath).toAbsolutePath();
+        Path temp = null;
+        try {
+            Path dir = target.getParent();
+            Files.createDirectories(dir);
+            // not Files.createTempFile: its owner-only permissions would end up on the notebook
+            temp = dir.resolve("." + target.getFileName() + "." + System.nanoTime() + ".tmp");
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 JsonWriter json = gson.newJsonWriter(new BufferedWriter(
+                         Channels.newWriter(channel, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS))) {
+                gson.toJson(notebook, NotebookSnapshot.class, json);
+                json.flush();
+                channel.force(true);
+            }
+            replace(temp, target);
+            syncDirectory(dir);
+            // a crash right before this leaves a journal for the old revision behind, load skips it
+            Files.deleteIfExists(NotebookJournal.pathFor(target));
+
+            metrics.recordSave(System.nanoTime() - start, true);
             return true;
-        } catch (IOException e) {
+        } catch (IOException | JsonIOException e) {
             System.err.println("[NotebookPersistence] Save failed: " + e.getMessage());
+            deleteQuietly(temp);
+            metrics.recordSave(System.nanoTime() - start, false);
             return false;
         }
     }
 
-    public boolean saveToPath(Notebook notebook, String fullPath) {
-        try (FileWriter writer = new FileWriter(fullPath)) {
-            writer.write(gson.toJson(notebook));
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // same directory, so only exotic file systems end up here
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // makes the rename itself durable; directories can't be opened for this on every platform (windows)
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // appends edit records to the journal of the file (written as `revision`) instead of rewriting it.
+    // returns the journal's size afterwards, -1 if the append failed
+    long appendJournal(List<NotebookJournal.Change> changes, String revision, String fullPath) {
+        long start = System.nanoTime();
+        try {
+            Path journal = NotebookJournal.pathFor(Path.of(fullPath).toAbsolutePath());
+            long size = NotebookJournal.append(journal, revision, changes, journalGson);
+            metrics.recordSave(System.nanoTime() - start, true);
+            return size;
+        } catch (IOException | JsonIOException e) {
+            System.err.println("[NotebookPersistence] Journal append failed: " + e.getMessage());
+            metrics.recordSave(System.nanoTime() - start, false);
+            return -1;
+        }
+    }
+
+    // reads the notebook file and replays its journal, if an earlier session left one behind
+    private Notebook read(File file) throws IOException {
+        Notebook notebook;
+        try (FileReader reader = new FileReader(file)) {
+            notebook = gson.fromJson(reader, Notebook.class);
         }
+        if (notebook == null) return null;
+        int replayed = NotebookJournal.replay(NotebookJournal.pathFor(file.toPath().toAbsolutePath()), notebook, journalGson);
+        if (replayed > 0) {
+            System.err.println("[NotebookPersistence] Replayed " + replayed + " journal records onto " + file.getName());
+        }
+        return notebook;
     }
 
     public Notebook loadFromPath(String fullPath) {
-        try (FileReader reader = new FileReader(fullPath)) {
-            return gson.fromJson(reader, Notebook.class);
+        long start = System.nanoTime();
+        try {
+            Notebook notebook = read(new File(fullPath));
+            metrics.recordLoad(System.nanoTime() - start, notebook != null);
+            return notebook;
         } catch (IOException e) {
             e.printStackTrace();
+            metrics.recordLoad(System.nanoTime() - start, false);
             return null;
         }
     }
@@ -98,10 +195,14 @@ public class NotebookPersistence {
             return null;
         }
 
-        try (FileReader reader = new FileReader(file)) {
-            return gson.fromJson(reader, Notebook.class);
+        long start = System.nanoTime();
+        try {
+            Notebook notebook = read(file);
+            metrics.recordLoad(System.nanoTime() - start, notebook != null);
+            return notebook;
         } catch (IOException e) {
             System.err.println("[NotebookPersistence] Load failed: " + e.getMessage());
+            metrics.recordLoad(System.nanoTime() - start, false);
             return null;
         }
     }
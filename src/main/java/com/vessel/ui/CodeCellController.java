@@ -1,21 +1,31 @@
 package com.vessel.ui;
 
+import com.vessel.Kernel.BatchExecution;
+import com.vessel.Kernel.ExecutionMetrics;
 import com.vessel.Kernel.ExecutionResult;
+import com.vessel.Kernel.OutputChunk;
+import com.vessel.Kernel.TruncatedOutput;
+import com.vessel.core.VesselRuntime;
 import com.vessel.model.NotebookCell;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Text;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.animation.Timeline;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.RotateTransition;
+import javafx.animation.AnimationTimer;
 import javafx.util.Duration;
 import org.kordamp.ikonli.javafx.FontIcon;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import static com.vessel.util.SyntaxService.computeJavaHighlighting;
 
 public class CodeCellController extends GenericCellController {
@@ -30,8 +40,20 @@ public class CodeCellController extends GenericCellController {
     private FontIcon runIcon;
     private FontIcon stopIcon;
 
-    // Field to hold the thread/task of the current execution
-    private Task<Void> shellTask;
+    // Future of the current (queued or running) execution of this cell
+    private CompletableFuture<ExecutionResult> pendingExecution;
+
+    // Set while this cell is part of a notebook-level batch run
+    private BatchExecution batch;
+    private RotateTransition batchSpin;
+
+    // === Live output ===
+    // Chunks arrive on the engine's output thread; they're buffered here and drained once per FX pulse
+    private static final int LIVE_OUTPUT_MAX_CHARS = 64 * 1024; // keep only the tail in the live view
+    private final StringBuilder pendingOutput = new StringBuilder();
+    private TextArea liveOutputArea;
+    private AnimationTimer liveOutputPump;
+    private Runnable outputSubscription;
 
     @Override
     public void setNotebookCell(NotebookCell cell) {
@@ -57,6 +79,14 @@ public class CodeCellController extends GenericCellController {
 
         runBtn.setOnAction(e -> toggleExecution());
 
+        // Shift+Enter queues this cell, so hammering it across cells pipelines runs on the engine
+        codeArea.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.ENTER && event.isShiftDown()) {
+                event.consume();
+                executeCode();
+            }
+        });
+
         // Listener for syntax highlighting (Using richtext's richChanges() listener instead cuz more performant for syntax highlighting)
         codeArea.richChanges()
                 .filter(ch -> !ch.getInserted().equals(ch.getRemoved()))  // filter to only fire when text actually changes - ignores caret movement and stuff
@@ -132,9 +162,58 @@ public class CodeCellController extends GenericCellController {
             outputBox.getChildren().add(resultArea);
             fadeIn(resultArea);
         }
+
+        if (shellResult.truncated() != null) {
+            outputBox.getChildren().add(createTruncationNotice(shellResult.truncated()));
+        }
+        if (shellResult.metrics() != null) {
+            outputBox.getChildren().add(createMetricsBadge(shellResult.metrics()));
+        }
         outputBox.setPrefHeight(-1); // reset container sizing
     }
 
+    // "compile 41 ms · run 3 ms · cpu 2 ms · 1.2 MB · 0 GC · ..." with the full breakdown in the tooltip
+    private Label createMetricsBadge(ExecutionMetrics metrics) {
+        Label badge = new Label(metrics.summary());
+        badge.getStyleClass().addAll("output-label", "metrics-badge");
+
+        String details = "Compile: " + metrics.compileTimeMs() + " ms\n"
+                + "Run: " + metrics.runTimeMs() + " ms\n"
+                + (metrics.hasKernelCounters()
+                    ? "CPU: " + metrics.cpuTimeMs() + " ms\n"
+                      + "Allocated: " + metrics.allocatedBytes() + " bytes\n"
+                      + "GC: " + metrics.gcCount() + " collections, " + metrics.gcPauseMs() + " ms\n"
+                    : "CPU / allocation / GC: not available\n")
+                + "Snippets: " + metrics.snippetsEvaluated() + " (" + metrics.evalCalls() + " evals)\n"
+                + "Output: " + metrics.outputBytes() + " bytes";
+        badge.setTooltip(new Tooltip(details));
+        return badge;
+    }
+
+    // "N lines truncated, open full output" -> opens the spill file in the system text viewer
+    private Region createTruncationNotice(TruncatedOutput truncated) {
+        String text = truncated.truncatedLines() + " lines truncated";
+        if (!truncated.hasSpillFile()) {
+            Label notice = new Label(text);
+            notice.getStyleClass().addAll("output-label", "output-label-muted");
+            return notice;
+        }
+
+        Hyperlink link = new Hyperlink(text + ", open full output");
+        link.getStyleClass().add("output-label");
+        link.setOnAction(e -> {
+            // Desktop.open can block on some platforms, keep it off the FX thread
+            VesselRuntime.shared().submit(() -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(new java.io.File(truncated.spillPath()));
+                } catch (Exception ex) {
+                    System.err.println("Could not open full output: " + ex.getMessage());
+                }
+            });
+        });
+        return link;
+    }
+
     private void adjustOutputAreaHeight(TextArea area) {
         Text helper = new Text();
         helper.setFont(area.getFont());
@@ -165,6 +244,44 @@ public class CodeCellController extends GenericCellController {
     }
 
     private void executeCode() {
+        RotateTransition spin = showExecutingState();
+
+        // the notebook's kernel may have been hibernated while idle, this wakes it (and restores its definitions)
+        if (notebookController != null) {
+            engine = notebookController.wakeEngine(this);
+        }
+
+        // to avoid nullpointerexceptions
+        if (engine == null) {
+            showExecutionFailure(spin, new IllegalStateException("NotebookEngine is not attached to this cell (Backend issue, restart kernel or reload the app)"));
+            return;
+        }
+
+        // Queued on the engine, no thread of our own. Results come back on the engine's queue thread.
+        CompletableFuture<ExecutionResult> submitted = engine.submit(cellModel); // fills cellModel.getExecutionResult()
+        pendingExecution = submitted;
+
+        submitted.whenComplete((result, ex) -> Platform.runLater(() -> {
+            // a newer run of this cell owns the output box now
+            if (pendingExecution != submitted) return;
+            pendingExecution = null;
+            stopLiveOutput();
+
+            if (submitted.isCancelled()) {
+                showCancelled(spin);
+            } else if (ex != null) {
+                showExecutionFailure(spin, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            } else {
+                displayOutput(spin);      // reads cellModel.getExecutionResult()
+                setRunButtonState(false);
+                if (notebookController != null) notebookController.cellEdited(this); // the result is saved with the notebook
+            }
+        }));
+    }
+
+    // Clears the output box, bumps the execution count and shows the spinner + live output.
+    // Returns the spinner animation so the caller can stop it when the result arrives.
+    private RotateTransition showExecutingState() {
         outputBox.setVisible(true);
         outputBox.setManaged(true);
         outputBox.getChildren().clear();
@@ -189,54 +306,151 @@ public class CodeCellController extends GenericCellController {
         outputBox.getChildren().add(spinnerBox);
         fadeIn(spinnerBox);
 
-        shellTask = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                // to avoid nullpointerexceptions
-                if (engine == null) {
-                    throw new IllegalStateException("NotebookEngine is not attached to this cell (Backend issue, restart kernel or reload the app)");
-                }
-                engine.execute(cellModel);   // fills cellModel.getExecutionResult()
-                return null;                 // matches Task<Void>
-            }
-        };
+        startLiveOutput();
+        return spin;
+    }
 
-        shellTask.setOnSucceeded(e -> {
-            spin.stop();
-            displayOutput();      // reads cellModel.getExecutionResult()
-            setRunButtonState(false);
-        });
+    // spin is null for a batch cell that never started
+    private void showCancelled(RotateTransition spin) {
+        stopLiveOutput();
+        if (spin != null) spin.stop();
+        outputBox.getChildren().clear();
+        Label cancelled = new Label("[Execution Cancelled]");
+        cancelled.getStyleClass().add("output-label");
+        outputBox.getChildren().add(cancelled);
+        setRunButtonState(false);
+    }
 
-        shellTask.setOnCancelled(e -> {
-            spin.stop();
-            outputBox.getChildren().clear();
-            Label cancelled = new Label("[Execution Cancelled]");
-            cancelled.getStyleClass().add("output-label");
-            outputBox.getChildren().add(cancelled);
-            setRunButtonState(false);
-        });
+    // -------------------- Batch (Run All / Run Below) --------------------
+    // Called by NotebookController on the FX thread as the notebook-level pipeline progresses.
 
-        shellTask.setOnFailed(e -> {
-            spin.stop();
-            outputBox.getChildren().clear();
+    // Waiting for its turn: a static label only, the spinner, live output and execution count
+    // wait for onBatchCellStarted (a long Run All would otherwise animate every queued cell)
+    public void onBatchQueued(BatchExecution batch) {
+        this.batch = batch;
+        batchSpin = null;
+        stopLiveOutput();
+        outputBox.setVisible(true);
+        outputBox.setManaged(true);
+        outputBox.getChildren().clear();
+        Label queued = new Label("Queued...");
+        queued.getStyleClass().addAll("output-label", "output-label-muted");
+        outputBox.getChildren().add(queued);
+        setRunButtonState(true); // stop cancels the whole batch, see toggleExecution()
+    }
 
-            Throwable ex = shellTask.getException();
-            Label err = new Label(
-                    "[Backend execution failed: " + (ex != null ? ex.getMessage() : "Unknown error") + "]"
-            );
-            err.getStyleClass().add("output-label");
-            outputBox.getChildren().add(err);
+    public void onBatchCellStarted(BatchExecution batch) {
+        if (this.batch != batch || batchSpin != null) return;
+        batchSpin = showExecutingState();
+    }
+
+    // Calls for a batch other than the cell's current one (e.g. the old batch of a Restart & Run All) are ignored
+    public void onBatchCellFinished(BatchExecution batch) {
+        if (this.batch != batch) return;
+        if (batchSpin == null) batchSpin = showExecutingState(); // finished without a started call
+        stopLiveOutput();
+        displayOutput(batchSpin);
+        setRunButtonState(false);
+        if (notebookController != null) notebookController.cellEdited(this);
+        batchSpin = null;
+        this.batch = null;
+    }
+
+    // The batch ended (failure upstream, cancel, pause + restart) before reaching this cell
+    public void onBatchSkipped(BatchExecution batch) {
+        if (this.batch != batch) return;
+        showCancelled(batchSpin);
+        batchSpin = null;
+        this.batch = null;
+    }
+
+    private void showExecutionFailure(RotateTransition spin, Throwable ex) {
+        stopLiveOutput();
+        spin.stop();
+        outputBox.getChildren().clear();
+
+        Label err = new Label(
+                "[Backend execution failed: " + (ex != null ? ex.getMessage() : "Unknown error") + "]"
+        );
+        err.getStyleClass().add("output-label");
+        outputBox.getChildren().add(err);
+
+        setRunButtonState(false);
+    }
 
-            setRunButtonState(false);
+    // Subscribes to the engine's output stream and shows this cell's chunks while it runs
+    private void startLiveOutput() {
+        stopLiveOutput();
+        if (engine == null) return;
+
+        final String cellId = cellModel.getId();
+        outputSubscription = engine.subscribeOutput(chunk -> {
+            if (!cellId.equals(chunk.cellId())) return;
+            synchronized (pendingOutput) {
+                pendingOutput.append(chunk.text());
+            }
         });
 
-        new Thread(shellTask).start();
+        // AnimationTimer.handle runs once per FX pulse -> all chunks since the last frame become one append
+        liveOutputPump = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drainLiveOutput();
+            }
+        };
+        liveOutputPump.start();
+    }
+
+    private void drainLiveOutput() {
+        String text;
+        synchronized (pendingOutput) {
+            if (pendingOutput.isEmpty()) return;
+            text = pendingOutput.toString();
+            pendingOutput.setLength(0);
+        }
+
+        if (liveOutputArea == null) {
+            liveOutputArea = new TextArea();
+            liveOutputArea.getStyleClass().add("read-only-output");
+            liveOutputArea.setEditable(false);
+            liveOutputArea.setWrapText(true);
+            liveOutputArea.setFocusTraversable(false);
+            liveOutputArea.setMaxWidth(1000);
+            liveOutputArea.setPrefRowCount(8);
+            outputBox.getChildren().add(liveOutputArea);
+        }
+
+        liveOutputArea.appendText(text);
+        int overflow = liveOutputArea.getLength() - LIVE_OUTPUT_MAX_CHARS;
+        if (overflow > 0) {
+            liveOutputArea.deleteText(0, overflow);
+        }
+        liveOutputArea.setScrollTop(Double.MAX_VALUE);
+    }
+
+    private void stopLiveOutput() {
+        if (outputSubscription != null) {
+            outputSubscription.run();
+            outputSubscription = null;
+        }
+        if (liveOutputPump != null) {
+            liveOutputPump.stop();
+            liveOutputPump = null;
+        }
+        synchronized (pendingOutput) {
+            pendingOutput.setLength(0);
+        }
+        // the final result replaces the live view
+        liveOutputArea = null;
     }
 
     private void toggleExecution() {
-        if (shellTask != null && shellTask.isRunning()) {
-            // this will interrupt the engine thread/task
-            shellTask.cancel();
+        if (batch != null) {
+            // stop button on any cell of a Run All stops the whole batch
+            batch.cancel();
+        } else if (pendingExecution != null && !pendingExecution.isDone()) {
+            // drops it from the engine queue, or stops it if it already started
+            pendingExecution.cancel(true);
         } else {
             executeCode();
         }
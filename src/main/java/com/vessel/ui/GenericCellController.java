@@ -63,10 +63,16 @@ public class GenericCellController {
         // Listener for updating cell model's content field
         codeArea.textProperty().addListener((obs, old, newText) -> {
             if (cellModel != null) cellModel.setContent(newText);
+            if (notebookController != null) notebookController.cellEdited(this);
         });
 
         // Listener for setting cell model's "type" on type change (in the dropbox)
 
+        // Remember the last focused cell (used by Run Below)
+        codeArea.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (focused && notebookController != null) notebookController.setActiveCell(this);
+        });
+
         // --- INITIAL PROMPT ---
         promptLabel.setMouseTransparent(true);  // let clicks go to the CodeArea
 
@@ -86,7 +92,8 @@ public class GenericCellController {
 
         // === AUTO-INDENT ON ENTER ===
         codeArea.setOnKeyReleased(event -> {
-            if (event.getCode() == javafx.scene.input.KeyCode.ENTER) {
+            // Shift+Enter runs the cell instead of inserting a newline, so nothing to indent
+            if (event.getCode() == javafx.scene.input.KeyCode.ENTER && !event.isShiftDown()) {
 
                 // Use Platform.runLater() for consistency, although sometimes not strictly
                 // needed here
@@ -227,6 +234,7 @@ public class GenericCellController {
         // swap in ui
         parentContainer.getChildren().remove(root);
         parentContainer.getChildren().add(index - 1, root);
+        notebookController.markNotebookDirty();
     }
 
     private void moveCellDown() {
@@ -238,6 +246,7 @@ public class GenericCellController {
         // swap in ui
         parentContainer.getChildren().remove(root);
         parentContainer.getChildren().add(index + 1, root);
+        notebookController.markNotebookDirty();
     }
 
     public void setNotebookController(NotebookController controller) {
@@ -296,6 +305,8 @@ public class GenericCellController {
         if (cellModel != null) {
             // also remove from notebook model
             notebookController.getCurrentNotebook().removeCell(cellModel.getId());
+            notebookController.markNotebookDirty();
+            if (engine != null) engine.forgetCell(cellModel.getId());
         }
     }
     private void confirmDelete() {
@@ -1,10 +1,16 @@
 package com.vessel.ui;
+import com.vessel.Kernel.BatchExecution;
+import com.vessel.Kernel.KernelGovernor;
+import com.vessel.Kernel.KernelProfile;
 import com.vessel.Kernel.NotebookEngine;
+import com.vessel.Kernel.SessionRestore;
 import com.vessel.model.CellType;
 import com.vessel.model.Notebook;
 import com.vessel.model.NotebookCell;
+import com.vessel.persistence.AutosaveService;
 import com.vessel.persistence.NotebookPersistence;
 import javafx.animation.FadeTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML; // methods linked with FXML basically all those we wrote in Notebook.fxml file those fx:id, is pulled here with this
 import javafx.fxml.FXMLLoader;
@@ -18,15 +24,19 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.Label;
 
 import java.io.*; // reading and writing project files
-import javafx.concurrent.Task;
 
 import java.awt.Desktop;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class NotebookController {
     public StackPane notebookNameContainer;
     // these are those fxml elements labelled via fx:id in main.fxml file
-    @FXML private VBox codeCellContainer; // that blocks containers made where user actually writes
+    @FXML private TabPane notebookTabs; // one tab per open notebook, each with its own engine
+    private VBox codeCellContainer; // cell container of the selected tab, where user actually writes
     @FXML private ChoiceBox<CellType> cellLanguage; // dropdown with 3 lang choices
     @FXML private Label javaVersionLabel; // displays java version of the user in the toolbar
     @FXML private Menu insertMenu;
@@ -37,8 +47,34 @@ public class NotebookController {
     private SystemThemeDetector.Theme theme = SystemThemeDetector.getSystemTheme();
     private Scene scene; // reference to the scene in Main.java so we can modify scene, here also
     private final NotebookPersistence persistence = new NotebookPersistence();
-
-    private Notebook currentNotebook;
+    // saves notebooks that have a file once edits go quiet; snapshots are taken on the FX thread
+    private final AutosaveService autosave = new AutosaveService(persistence, Platform::runLater);
+
+    private Notebook currentNotebook; // notebook of the selected tab
+
+    // === Run pipeline state ===
+    @FXML private CheckMenuItem stopOnFailureItem; // Cell > Stop on First Failure
+    @FXML private CheckMenuItem restoreSessionItem;   // Shell > Restore Session on Open
+    @FXML private Label restoreStatusLabel;
+    @FXML private CheckMenuItem variableExplorerItem; // View > Variable Explorer
+    @FXML private StackPane variableExplorerPane;
+    private VariableExplorer variableExplorer;
+    private GenericCellController activeCell;     // last focused cell, Run Below starts here
+
+    // One open notebook: its cells' container and its own batch / restore (kept in Tab.userData)
+    private static final class NotebookTab {
+        final Notebook notebook;
+        final VBox container;
+        final Tab tab;
+        BatchExecution batch;
+        SessionRestore restore;
+
+        NotebookTab(Notebook notebook, VBox container, Tab tab) {
+            this.notebook = notebook;
+            this.container = container;
+            this.tab = tab;
+        }
+    }
 
     // im purely putting this for better performance
     private static boolean markdownEngineWarmedUp = false;
@@ -61,8 +97,10 @@ public class NotebookController {
     @FXML
     private void initialize() {// called automatically after FXML loads, sets default lang to Java Code, and shows java version in toolbar
 
-        // Notebook init.
-        currentNotebook = new Notebook("untitled"); //  hardcoded right now
+        // selecting a tab makes its notebook the current one
+        notebookTabs.getSelectionModel().selectedItemProperty().addListener((obs, old, selected) -> {
+            if (selected != null && selected.getUserData() instanceof NotebookTab notebookTab) selectTab(notebookTab);
+        });
 
         cellLanguage.setItems(FXCollections.observableArrayList(CellType.values())); // Fill the choice dropbox thing
         cellLanguage.setValue(CellType.CODE);
@@ -75,7 +113,12 @@ public class NotebookController {
             insertMenu.getItems().add(item);
         }
 
-        // Create default code cell on startup
+        // Variable explorer follows whatever engine the current notebook has
+        variableExplorer = new VariableExplorer(() -> getCurrentNotebook().getEngine());
+        variableExplorerPane.getChildren().add(variableExplorer.getRoot());
+
+        // Notebook init, with a default code cell
+        openTab(new Notebook("untitled")); //  hardcoded right now
         addCell(CellType.CODE);
         warmupMarkdownEngine();
     }
@@ -88,6 +131,7 @@ public class NotebookController {
         cellModel.setType(initialType);
         currentNotebook.addCell(cellModel);   // <-- IMPORTANT (this was missing)
         codeCellContainer.getChildren().add(createCellUI(initialType, cellModel));
+        markNotebookDirty();
     }
 
     // Parameterless overloading (used by .fxml files)
@@ -134,6 +178,7 @@ public class NotebookController {
         if (model == null) return;
 
         model.setType(newType);
+        cellEdited(oldController);
 
         Pane oldRoot = (Pane) oldController.getRoot();
         if (oldRoot == null) return;
@@ -185,9 +230,116 @@ public class NotebookController {
     @FXML private void pasteCell() { System.out.println("Paste cell"); }
     @FXML private void moveUpCell() { System.out.println("Move cell up"); }
     @FXML private void moveDownCell() { System.out.println("Move cell down"); }
-    @FXML private void runCell() { System.out.println("Run all cells"); }
-    @FXML private void pauseCell() { System.out.println("Pause all cells"); }
-    @FXML private void refreshCell() { System.out.println("Refresh all cells"); }
+
+    // -------------------- Run Pipeline --------------------
+    // Run All / Run Below hand every CODE cell to the engine as one batch (one queue item, one lock
+    // acquisition) instead of spinning up a task per cell. Results are pushed back to each cell as they finish.
+
+    @FXML private void runCell() { runFrom(0); }
+
+    @FXML
+    private void runBelow() {
+        int index = activeCell != null ? codeCellContainer.getChildren().indexOf(activeCell.getRoot()) : 0;
+        runFrom(Math.max(0, index));
+    }
+
+    // pause/resume the running batch (takes effect between cells)
+    @FXML
+    private void pauseCell() {
+        BatchExecution batch = selectedTab().batch;
+        if (batch == null) {
+            System.out.println("Pause: nothing is running");
+            return;
+        }
+        if (batch.isPaused()) {
+            batch.resume();
+            System.out.println("Run resumed");
+        } else {
+            batch.pause();
+            System.out.println("Run paused");
+        }
+    }
+
+    // re-run only cells that were edited (or failed / never ran) and the cells that use their definitions
+    @FXML
+    private void runStale() {
+        NotebookEngine notebookEngine = wakeEngine(selectedTab());
+        if (notebookEngine == null) {
+            System.out.println("Run: shell is not running");
+            return;
+        }
+
+        Map<NotebookCell, CodeCellController> all = collectCodeCells(0);
+        List<NotebookCell> stale = notebookEngine.getStaleCells(new ArrayList<>(all.keySet()));
+
+        Map<NotebookCell, CodeCellController> controllers = new LinkedHashMap<>();
+        for (NotebookCell cell : stale) {
+            controllers.put(cell, all.get(cell));
+        }
+        System.out.println("Run stale: " + stale.size() + " of " + all.size() + " cells");
+        runBatch(controllers);
+    }
+
+    // restart the kernel and run everything from a clean session
+    @FXML
+    private void refreshCell() {
+        restartShell();
+        runCell();
+    }
+
+    private void runFrom(int startIndex) {
+        runBatch(collectCodeCells(startIndex));
+    }
+
+    // code cells in UI order (same order as Notebook.getCells()), starting at startIndex
+    private Map<NotebookCell, CodeCellController> collectCodeCells(int startIndex) {
+        Map<NotebookCell, CodeCellController> controllers = new LinkedHashMap<>();
+        var children = codeCellContainer.getChildren();
+        for (int i = startIndex; i < children.size(); i++) {
+            if (children.get(i).getUserData() instanceof CodeCellController codeController) {
+                controllers.put(codeController.getNotebookCell(), codeController);
+            }
+        }
+        return controllers;
+    }
+
+    private void runBatch(Map<NotebookCell, CodeCellController> controllers) {
+        NotebookTab notebookTab = selectedTab();
+        NotebookEngine notebookEngine = wakeEngine(notebookTab);
+        if (notebookEngine == null) {
+            System.out.println("Run: shell is not running");
+            return;
+        }
+        if (notebookTab.batch != null) {
+            System.out.println("Run: a batch is already running");
+            return;
+        }
+        if (controllers.isEmpty()) return;
+
+        // the callbacks need the batch they belong to, which only exists once they are passed in
+        BatchExecution[] self = new BatchExecution[1];
+        BatchExecution batch = new BatchExecution(
+                new ArrayList<>(controllers.keySet()),
+                stopOnFailureItem == null || stopOnFailureItem.isSelected(),
+                cell -> Platform.runLater(() -> controllers.get(cell).onBatchCellStarted(self[0])),
+                (cell, result) -> Platform.runLater(() -> controllers.get(cell).onBatchCellFinished(self[0]))
+        );
+        self[0] = batch;
+        notebookTab.batch = batch;
+        controllers.values().forEach(controller -> controller.onBatchQueued(batch));
+
+        notebookEngine.submitBatch(batch).getFuture().whenComplete((results, ex) -> Platform.runLater(() -> {
+            // anything that never got a result was skipped (failure, cancel, shutdown)
+            // (a cell that a newer batch has queued since ignores this one)
+            controllers.values().forEach(controller -> controller.onBatchSkipped(batch));
+            if (notebookTab.batch == batch) notebookTab.batch = null;
+            System.out.println("Run finished: " + (results != null ? results.size() : 0) + " cells executed");
+        }));
+    }
+
+    public void setActiveCell(GenericCellController cell) {
+        this.activeCell = cell;
+    }
 
     // -------------------- File Actions --------------------
     // Saving project to system
@@ -206,18 +358,10 @@ public class NotebookController {
         File file = fileChooser.showSaveDialog(codeCellContainer.getScene().getWindow());
         if (file == null) return; // user canceled
 
-        // wrap save logic in Task
-        Task<Boolean> saveTask = new Task<Boolean>() {
-            @Override
-            protected Boolean call() throws Exception {
-                return persistence.saveToPath(currentNotebook, file.getAbsolutePath());
-            }
-        };
-
-        saveTask.setOnSucceeded(e -> System.out.println("save done!"));
-        saveTask.setOnFailed(e -> System.out.println("save failed."));
-
-        new Thread(saveTask).start();
+        // the snapshot is taken here on the FX thread, the writer never sees the cells the user keeps typing into.
+        // From now on edits to this notebook are autosaved to the same file.
+        autosave.track(currentNotebook, file.toPath());
+        autosave.saveNow(currentNotebook).thenAccept(ok -> System.out.println(ok ? "save done!" : "save failed."));
     }
 
     // opens already existing project
@@ -232,21 +376,51 @@ public class NotebookController {
         if (file == null) return;
         Notebook loaded = persistence.loadFromPath(file.getAbsolutePath());
         if (loaded != null) {
-            if (currentNotebook != null) {
-                currentNotebook.shutdownEngine();
-            }
-            currentNotebook = loaded;
-            currentNotebook.initEngineIfNull();
+            // opens next to the notebooks already open; the governor hibernates an idle one if there are too many kernels
+            loaded.initEngineIfNull();
+            NotebookTab notebookTab = openTab(loaded);
             renderNotebook();
-
-            currentNotebookName = currentNotebook.getName();
-            notebookNameLabel.setText(currentNotebookName);
+            autosave.track(loaded, file.toPath()); // after rendering, filling the cells isn't an edit
+            if (restoreSessionItem == null || restoreSessionItem.isSelected()) {
+                restoreSession(notebookTab);
+            }
             System.out.println("loaded ok");
         } else {
             System.out.println("load failed");
         }
     }
 
+    // Replays the loaded cells' declarations (imports, classes, methods, plain variables) into the fresh
+    // kernel in the background. Cells can be run right away; each one waits only for the cells above it.
+    // Also used when a hibernated notebook wakes up with a fresh kernel.
+    private void restoreSession(NotebookTab notebookTab) {
+        if (notebookTab.restore != null) notebookTab.restore.cancel();
+        NotebookEngine notebookEngine = notebookTab.notebook.getEngine();
+        if (notebookEngine == null || notebookTab.notebook.getCells().isEmpty()) return;
+
+        SessionRestore restore = new SessionRestore(notebookTab.notebook.getCells(), progress -> Platform.runLater(() -> {
+            if (notebookTab.restore == progress && notebookTab == selectedTab()) {
+                restoreStatusLabel.setText("Restoring session " + progress.getRestoredCells() + "/" + progress.getTotalCells());
+            }
+        }));
+        notebookTab.restore = restore;
+        if (notebookTab == selectedTab()) restoreStatusLabel.setText("Restoring session...");
+
+        notebookEngine.restoreSession(restore).getFuture().whenComplete((ignored, ex) -> Platform.runLater(() -> {
+            if (notebookTab.restore != restore) return;
+            notebookTab.restore = null;
+            if (notebookTab != selectedTab()) return;
+            if (restore.isCancelled()) {
+                restoreStatusLabel.setText("");
+                return;
+            }
+            restoreStatusLabel.setText(ex != null ? "Session restore failed"
+                    : "Restored " + restore.getReplayedSnippets() + " definitions (" + restore.getSkippedSnippets() + " statements not run)");
+            System.out.println("Session restore: " + restore.getReplayedSnippets() + " replayed, "
+                    + restore.getSkippedSnippets() + " skipped, " + restore.getFailedSnippets() + " failed");
+        }));
+    }
+
     // clears ui and rebuilds all cells from the loaded notebook model
     private void renderNotebook() {
         codeCellContainer.getChildren().clear();
@@ -264,6 +438,14 @@ public class NotebookController {
     @FXML private void zoomIn() { System.out.println("Zoom In"); }
     @FXML private void zoomOut() { System.out.println("Zoom Out"); }
 
+    @FXML
+    private void toggleVariableExplorer() {
+        boolean show = variableExplorerItem.isSelected();
+        variableExplorerPane.setVisible(show);
+        variableExplorerPane.setManaged(show);
+        variableExplorer.setActive(show);
+    }
+
     @FXML private void showAbout() {
         try{
             Desktop desktop = Desktop.getDesktop();
@@ -275,11 +457,8 @@ public class NotebookController {
 
     @FXML
     private void newNotebook() {
-        codeCellContainer.getChildren().clear();
-
-        currentNotebookName = "Untitled Notebook";
-        notebookNameLabel.setText(currentNotebookName);
-
+        // new tab with a fresh model + pre-warmed kernel, the other notebooks keep theirs
+        openTab(new Notebook("untitled"));
         addCell();
     }
     // -------------------- Helpers --------------------
@@ -297,10 +476,12 @@ public class NotebookController {
             theme = SystemThemeDetector.Theme.DARK;
         }
 
-        // refresh markdown previews in all text cells
-        for (var node : codeCellContainer.getChildren()) {
-            if (node.getUserData() instanceof TextCellController textCtrl) {
-                textCtrl.refreshPreview();
+        // refresh markdown previews in all text cells, of every open notebook
+        for (NotebookTab notebookTab : openTabs()) {
+            for (var node : notebookTab.container.getChildren()) {
+                if (node.getUserData() instanceof TextCellController textCtrl) {
+                    textCtrl.refreshPreview();
+                }
             }
         }
     }
@@ -334,6 +515,8 @@ public class NotebookController {
         currentNotebookName = newName;
         notebookNameLabel.setText(newName);
         getCurrentNotebook().setName(newName);
+        markNotebookDirty();
+        updateTabTitle(selectedTab());
         if (notebookNameContainer.getChildren().contains(field)) {
             notebookNameContainer.getChildren().clear();
             notebookNameContainer.getChildren().add(notebookNameLabel);
@@ -355,18 +538,199 @@ public class NotebookController {
     @FXML
     private void restartShell() {
         System.out.println("Shell: Restarting JShell Engine...");
-        getCurrentNotebook().shutdownEngine();
-        getCurrentNotebook().initEngineIfNull();
+        NotebookTab notebookTab = selectedTab();
+        if (notebookTab.batch != null) {
+            notebookTab.batch.cancel();
+            notebookTab.batch = null;
+        }
+        getCurrentNotebook().restartEngine();
         reattachEngineAll();
         System.out.println("Shell: Engine restart complete. Cell controllers updated.");
     }
 
+    // Heap / GC / JVM options / engine of the current notebook's kernel; applied with a kernel restart
+    @FXML
+    private void editKernelProfile() {
+        KernelProfile current = getCurrentNotebook().getKernelProfile();
+
+        TextField heapField = new TextField(current.maxHeapMb() > 0 ? String.valueOf(current.maxHeapMb()) : "");
+        heapField.setPromptText("JVM default");
+        ChoiceBox<KernelProfile.GarbageCollector> gcChoice =
+                new ChoiceBox<>(FXCollections.observableArrayList(KernelProfile.GarbageCollector.values()));
+        gcChoice.setValue(current.gc());
+        TextField optionsField = new TextField(String.join(" ", current.vmOptions()));
+        optionsField.setPromptText("e.g. -XX:MaxDirectMemorySize=2g");
+        TextField memoryLimitField = new TextField(String.valueOf(current.memoryLimitPercent()));
+        memoryLimitField.setPromptText("0 = off");
+        ChoiceBox<KernelProfile.Engine> engineChoice =
+                new ChoiceBox<>(FXCollections.observableArrayList(KernelProfile.Engine.values()));
+        engineChoice.setValue(current.engine());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+        grid.addRow(0, new Label("Max heap (MB)"), heapField);
+        grid.addRow(1, new Label("Garbage collector"), gcChoice);
+        grid.addRow(2, new Label("Extra JVM options"), optionsField);
+        grid.addRow(3, new Label("Execution engine"), engineChoice);
+        grid.addRow(4, new Label("Memory limit (% old gen)"), memoryLimitField);
+        Label note = new Label("LOCAL runs cells inside Vessel: heap, GC and JVM options don't apply. "
+                + "A cell is stopped once the old generation stays above the memory limit after GC.");
+        note.setWrapText(true);
+        grid.add(note, 0, 5, 2, 1);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Kernel Profile");
+        dialog.setHeaderText("Kernel of '" + getCurrentNotebook().getName() + "' (restarts the kernel)");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+        if (scene != null) {
+            dialog.initOwner(scene.getWindow());
+            dialog.getDialogPane().getStylesheets().setAll(scene.getStylesheets());
+        }
+
+        dialog.showAndWait().filter(button -> button == ButtonType.OK).ifPresent(button -> {
+            KernelProfile profile;
+            try {
+                String heap = heapField.getText().trim();
+                String options = optionsField.getText().trim();
+                String memoryLimit = memoryLimitField.getText().trim();
+                profile = new KernelProfile(heap.isEmpty() ? 0 : Long.parseLong(heap), gcChoice.getValue(),
+                        options.isEmpty() ? List.of() : List.of(options.split("\\s+")), engineChoice.getValue(),
+                        memoryLimit.isEmpty() ? 0 : Integer.parseInt(memoryLimit));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Kernel profile: invalid value (" + e.getMessage() + ")");
+                return;
+            }
+            getCurrentNotebook().setKernelProfile(profile);
+            markNotebookDirty();
+            System.out.println("Kernel profile: " + profile.describe());
+            restartShell();
+        });
+    }
+
     private void reattachEngineAll() {
-        NotebookEngine newEngine = getCurrentNotebook().getEngine();
-        for (javafx.scene.Node node : codeCellContainer.getChildren()) {
+        reattachEngine(selectedTab(), getCurrentNotebook().getEngine());
+    }
+
+    private void reattachEngine(NotebookTab notebookTab, NotebookEngine newEngine) {
+        for (javafx.scene.Node node : notebookTab.container.getChildren()) {
             Object controller = node.getUserData();
             ((GenericCellController) controller).updateEngine(newEngine);
         }
+        updateTabTitle(notebookTab);
+    }
+
+    // -------------------- Notebook Tabs --------------------
+    // Every open notebook keeps its own kernel. KernelGovernor caps how many run at once: idle ones are
+    // hibernated (kernel closed, cells kept) and woken with a fresh kernel + session restore on their next run.
+
+    private NotebookTab openTab(Notebook notebook) {
+        VBox container = new VBox(5);
+        container.setId("codeCellContainer"); // styled by the theme stylesheets
+        container.setAlignment(javafx.geometry.Pos.TOP_CENTER);
+        container.setPadding(new javafx.geometry.Insets(10));
+        ScrollPane scrollPane = new ScrollPane(container);
+        scrollPane.setFitToWidth(true);
+
+        Tab tab = new Tab(notebook.getName(), scrollPane);
+        NotebookTab notebookTab = new NotebookTab(notebook, container, tab);
+        tab.setUserData(notebookTab);
+        tab.setOnClosed(e -> closeTab(notebookTab));
+
+        // the governor may swap the engine from its own thread (hibernate) or a cell run (wake)
+        notebook.setEngineListener(engine -> Platform.runLater(() -> reattachEngine(notebookTab, engine)));
+
+        notebookTabs.getTabs().add(tab);
+        notebookTabs.getSelectionModel().select(tab); // -> selectTab()
+        return notebookTab;
+    }
+
+    private void selectTab(NotebookTab notebookTab) {
+        currentNotebook = notebookTab.notebook;
+        codeCellContainer = notebookTab.container;
+        activeCell = null;
+        currentNotebookName = currentNotebook.getName();
+        notebookNameLabel.setText(currentNotebookName);
+        restoreStatusLabel.setText(notebookTab.restore != null ? "Restoring session..." : "");
+        KernelGovernor.getShared().touch(currentNotebook);
+    }
+
+    private void closeTab(NotebookTab notebookTab) {
+        if (notebookTab.batch != null) notebookTab.batch.cancel();
+        if (notebookTab.restore != null) notebookTab.restore.cancel();
+        notebookTab.notebook.setEngineListener(null);
+        notebookTab.notebook.releaseEngine(); // closed in the background
+        if (autosave.isDirty(notebookTab.notebook)) autosave.saveNow(notebookTab.notebook); // written in the background
+        autosave.untrack(notebookTab.notebook);
+        if (notebookTabs.getTabs().isEmpty()) newNotebook();
+    }
+
+    private NotebookTab selectedTab() {
+        return (NotebookTab) notebookTabs.getSelectionModel().getSelectedItem().getUserData();
+    }
+
+    private List<NotebookTab> openTabs() {
+        List<NotebookTab> open = new ArrayList<>();
+        for (Tab tab : notebookTabs.getTabs()) {
+            open.add((NotebookTab) tab.getUserData());
+        }
+        return open;
+    }
+
+    private void updateTabTitle(NotebookTab notebookTab) {
+        String title = notebookTab.notebook.getName();
+        notebookTab.tab.setText(notebookTab.notebook.isHibernated() ? title + " (hibernated)" : title);
+    }
+
+    // The engine a cell should run on. Wakes the cell's notebook if the governor hibernated it:
+    // a fresh kernel, and its definitions are restored before the cell runs.
+    public NotebookEngine wakeEngine(GenericCellController cell) {
+        NotebookTab notebookTab = tabOf(cell);
+        return notebookTab != null ? wakeEngine(notebookTab) : getCurrentNotebook().getEngine();
+    }
+
+    // The cell's content, type or result changed (FX thread, every keystroke): autosaved once edits go quiet
+    public void cellEdited(GenericCellController cell) {
+        NotebookTab notebookTab = tabOf(cell);
+        NotebookCell model = cell.getNotebookCell();
+        if (notebookTab != null && model != null) autosave.markDirty(notebookTab.notebook, model.getId());
+    }
+
+    // Cells added / removed / moved, renamed, settings changed
+    public void markNotebookDirty() {
+        autosave.markDirty(currentNotebook, null);
+    }
+
+    // O(tabs), cheap enough for every keystroke: cell roots sit directly in their tab's container
+    private NotebookTab tabOf(GenericCellController cell) {
+        if (cell.getRoot() == null) return null;
+        for (NotebookTab notebookTab : openTabs()) {
+            if (cell.getRoot().getParent() == notebookTab.container) return notebookTab;
+        }
+        return null;
+    }
+
+    private NotebookEngine wakeEngine(NotebookTab notebookTab) {
+        Notebook notebook = notebookTab.notebook;
+        if (!notebook.isHibernated()) {
+            KernelGovernor.getShared().touch(notebook);
+            return notebook.getEngine();
+        }
+        System.out.println("Shell: waking the kernel of '" + notebook.getName() + "'");
+        NotebookEngine engine = notebook.wake();
+        reattachEngine(notebookTab, engine);
+        restoreSession(notebookTab); // queued before the run, so the run waits for the definitions above it
+        return engine;
+    }
+
+    // App exit: unsaved edits of autosaved notebooks, then every open notebook's kernel
+    public void shutdownAll() {
+        autosave.shutdown();
+        for (NotebookTab notebookTab : openTabs()) {
+            notebookTab.notebook.setEngineListener(null);
+            notebookTab.notebook.shutdownEngine();
+        }
     }
 
     public Notebook getCurrentNotebook() {
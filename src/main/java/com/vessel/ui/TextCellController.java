@@ -1,5 +1,6 @@
 package com.vessel.ui;
 
+import com.vessel.core.VesselRuntime;
 import com.vessel.model.CellType;
 import com.vessel.model.NotebookCell;
 import com.vessel.util.SyntaxService;
@@ -26,6 +27,7 @@ public class TextCellController extends GenericCellController {
     @FXML FontIcon previewSpinnerIcon;
 
     private WebView markdownPreview;
+    private long previewGeneration; // bumped per render so a slow render never overwrites a newer one
     private RotateTransition previewSpin;
 
     @FXML
@@ -141,13 +143,19 @@ public class TextCellController extends GenericCellController {
                 (notebookController != null) ? notebookController.getTheme()
                         : SystemThemeDetector.getSystemTheme();
         String md = codeArea.getText();
-        String html = SyntaxService.renderMarkdownToHtml(md, theme);
+        long generation = ++previewGeneration;
 
-        // ensurePreviewCreated() is (I *think*) computationally heavy so I added a loadscreen logic here
-        Platform.runLater(() -> {
-            ensurePreviewCreated();
+        // markdown parsing runs off the FX thread, the WebView is still built/loaded on it
+        VesselRuntime.shared().submit(() -> {
+            String html = SyntaxService.renderMarkdownToHtml(md, theme);
 
-            markdownPreview.getEngine().loadContent(html);
+            // ensurePreviewCreated() is (I *think*) computationally heavy so I added a loadscreen logic here
+            Platform.runLater(() -> {
+                if (generation != previewGeneration) return; // a newer render is on its way
+                ensurePreviewCreated();
+
+                markdownPreview.getEngine().loadContent(html);
+            });
         });
     }
 
@@ -224,8 +232,15 @@ public class TextCellController extends GenericCellController {
                         : SystemThemeDetector.getSystemTheme();
 
         String md = codeArea.getText();
-        String html = SyntaxService.renderMarkdownToHtml(md, theme);
-        markdownPreview.getEngine().loadContent(html);
+        long generation = ++previewGeneration;
+
+        VesselRuntime.shared().submit(() -> {
+            String html = SyntaxService.renderMarkdownToHtml(md, theme);
+            Platform.runLater(() -> {
+                if (generation != previewGeneration || markdownPreview == null) return;
+                markdownPreview.getEngine().loadContent(html);
+            });
+        });
     }
 
     private void ensurePreviewCreated() {
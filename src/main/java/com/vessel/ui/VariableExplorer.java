@@ -0,0 +1,162 @@
+package com.vessel.ui;
+
+import com.vessel.Kernel.NotebookEngine;
+import com.vessel.Kernel.SessionSnapshot;
+import com.vessel.Kernel.VariablePage;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+import java.util.function.Supplier;
+
+// Side panel listing the session's variables (name : type) with a paged value view for the selected one.
+// The list comes from the engine's session snapshot, so it costs nothing and never waits on a running cell.
+// Values are rendered in the kernel one page at a time, off the FX thread, only for the variable you click.
+public class VariableExplorer {
+
+    private static final int PAGE_SIZE = 50;
+    private static final Duration POLL_INTERVAL = Duration.millis(500); // session version check, a plain field read
+
+    private final Supplier<NotebookEngine> engineSupplier; // current notebook's engine, null while no kernel runs
+    private final VBox root = new VBox(6);
+    private final ListView<SessionSnapshot.Variable> variableList = new ListView<>();
+    private final ListView<String> valueList = new ListView<>();
+    private final Label valueHeader = new Label("Select a variable");
+    private final Button loadMoreButton = new Button("Load more");
+    private final Timeline poller;
+
+    private NotebookEngine shownEngine;
+    private long shownVersion = -1;
+    private VariablePage lastPage;  // page currently at the bottom of valueList
+    private long requestId = 0;     // ignore pages that arrive after the selection changed
+
+    public VariableExplorer(Supplier<NotebookEngine> engineSupplier) {
+        this.engineSupplier = engineSupplier;
+
+        Label title = new Label("Variables");
+        title.getStyleClass().add("variable-explorer-title");
+
+        variableList.getStyleClass().add("variable-list");
+        variableList.setPlaceholder(new Label("No variables"));
+        variableList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(SessionSnapshot.Variable variable, boolean empty) {
+                super.updateItem(variable, empty);
+                setText(empty || variable == null ? null : variable.name() + " : " + variable.typeName());
+            }
+        });
+        variableList.getSelectionModel().selectedItemProperty()
+                .addListener((obs, old, selected) -> showVariable(selected));
+
+        valueHeader.getStyleClass().add("variable-value-header");
+        valueList.getStyleClass().add("variable-values");
+        valueList.setPlaceholder(new Label(""));
+
+        loadMoreButton.setVisible(false);
+        loadMoreButton.setManaged(false);
+        loadMoreButton.setOnAction(e -> loadNextPage());
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox footer = new HBox(spacer, loadMoreButton);
+
+        VBox.setVgrow(variableList, Priority.ALWAYS);
+        VBox.setVgrow(valueList, Priority.ALWAYS);
+        root.getChildren().addAll(title, variableList, valueHeader, valueList, footer);
+        root.getStyleClass().add("variable-explorer");
+        root.setPadding(new Insets(8));
+        root.setPrefWidth(300);
+
+        poller = new Timeline(new KeyFrame(POLL_INTERVAL, e -> refresh()));
+        poller.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public VBox getRoot() { return root; }
+
+    // Only poll while the panel is on screen
+    public void setActive(boolean active) {
+        if (active) {
+            refresh();
+            poller.play();
+        } else {
+            poller.stop();
+        }
+    }
+
+    // Rebuilds the list if the engine or its session version changed; keeps the selection if the variable survived
+    public void refresh() {
+        NotebookEngine engine = engineSupplier.get();
+        SessionSnapshot snapshot = engine == null ? SessionSnapshot.EMPTY : engine.getSession();
+        if (engine == shownEngine && snapshot.version() == shownVersion) return;
+        shownEngine = engine;
+        shownVersion = snapshot.version();
+
+        SessionSnapshot.Variable selected = variableList.getSelectionModel().getSelectedItem();
+        variableList.getItems().setAll(snapshot.variables());
+        SessionSnapshot.Variable again = selected == null ? null : snapshot.variable(selected.name());
+        if (again != null) {
+            // setAll() cleared the selection, re-selecting renders the (possibly new) value again
+            variableList.getSelectionModel().select(again);
+        } else {
+            variableList.getSelectionModel().clearSelection();
+        }
+    }
+
+    private void showVariable(SessionSnapshot.Variable variable) {
+        valueList.getItems().clear();
+        lastPage = null;
+        setLoadMoreVisible(false);
+        if (variable == null || shownEngine == null) {
+            requestId++;
+            valueHeader.setText("Select a variable");
+            return;
+        }
+        valueHeader.setText(variable.name() + " : " + variable.typeName() + " (rendering...)");
+        requestPage(variable.name(), 0);
+    }
+
+    private void loadNextPage() {
+        if (lastPage == null || !lastPage.hasMore()) return;
+        setLoadMoreVisible(false);
+        requestPage(lastPage.name(), lastPage.nextOffset());
+    }
+
+    private void requestPage(String name, int offset) {
+        long id = ++requestId;
+        shownEngine.inspectVariable(name, offset, PAGE_SIZE).whenComplete((page, error) -> Platform.runLater(() -> {
+            if (id != requestId) return;
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                valueHeader.setText(name + ": " + cause.getMessage());
+                return;
+            }
+            showPage(page);
+        }));
+    }
+
+    private void showPage(VariablePage page) {
+        lastPage = page;
+        valueList.getItems().addAll(page.items());
+        String header = page.name() + " : " + page.typeName();
+        if (page.isContainer()) {
+            header += " (" + page.kind() + ", " + page.size() + " items, showing " + page.nextOffset() + ")";
+        }
+        valueHeader.setText(header);
+        setLoadMoreVisible(page.hasMore());
+    }
+
+    private void setLoadMoreVisible(boolean visible) {
+        loadMoreButton.setVisible(visible);
+        loadMoreButton.setManaged(visible);
+    }
+}
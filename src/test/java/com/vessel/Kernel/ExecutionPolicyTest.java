@@ -0,0 +1,116 @@
+package com.vessel.Kernel;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Match / no-match corpus and throughput check for ExecutionPolicy.
+ *
+ * Patterns only count in code: comments, string / char literals and text blocks are skipped,
+ * whitespace between tokens is ignored and a pattern has to cover whole identifiers.
+ */
+class ExecutionPolicyTest {
+
+    private static final ExecutionPolicy POLICY = ExecutionPolicy.of(List.of(
+            "System.exit", "Runtime.getRuntime().exec", "ProcessBuilder", "Runtime.getRuntime().halt", "sun.misc.Unsafe"));
+
+    // cell text -> blocked pattern, null = allowed
+    private static final String[][] CORPUS = {
+            // blocked
+            {"System.exit(0);", "System.exit"},
+            {"System . exit ( 1 );", "System.exit"},
+            {"Runtime . getRuntime ( ) . exec(\"ls\");", "Runtime.getRuntime().exec"},
+            {"Runtime.getRuntime()\n    .halt(1);", "Runtime.getRuntime().halt"},
+            {"var p = new ProcessBuilder(\"ls\");", "ProcessBuilder"},
+            {"java.lang.System.exit(0);", "System.exit"},
+            {"int x = 1;System.exit(x);", "System.exit"},
+            {"/* comment */System.exit(0);", "System.exit"},
+            {"System/* split */.exit(0);", "System.exit"},
+            {"sun.misc.Unsafe u = null;", "sun.misc.Unsafe"},
+            {"String s = \"a\\\"b\"; System.exit(0);", "System.exit"},
+            {"char c = '\"'; System.exit(0);", "System.exit"},
+            {"String t = \"\"\"\n  \\\"\"\" still text\n  \"\"\"; System.exit(0);", "System.exit"},
+            {"System.exit", "System.exit"},
+
+            // allowed
+            {"MySystem.exit(0);", null},
+            {"System.exitCode();", null},
+            {"int ProcessBuilderCount = 0;", null},
+            {"xsun.misc.Unsafe u;", null},
+            {"Sys tem.exit(0);", null},
+            {"// System.exit(0);", null},
+            {"/* Runtime.getRuntime().exec(\"rm\") */", null},
+            {"String s = \"System.exit(0)\";", null},
+            {"String s = \"a\\\" System.exit(0)\";", null},
+            {"String t = \"\"\"\n  System.exit(0);\n  \\\"\"\" ProcessBuilder\n  \"\"\";", null},
+            {"Runtime.getRuntime().availableProcessors();", null},
+            {"System.out.println(\"exit\");", null},
+            {"", null},
+    };
+
+    @Test
+    void matchesCorpus() {
+        for (String[] entry : CORPUS) {
+            assertEquals(Optional.ofNullable(entry[1]), POLICY.findViolation(entry[0]), () -> "scanning:\n" + entry[0]);
+        }
+    }
+
+    @Test
+    void loadsRulesFromFile() throws IOException {
+        Path file = Files.createTempFile("execution-policy", ".txt");
+        try {
+            Files.writeString(file, "# comment\n\nThread . stop\n  Thread.stop  \nThread.suspend\n");
+            ExecutionPolicy policy = ExecutionPolicy.fromFile(file);
+            assertEquals(List.of("Thread.stop", "Thread.suspend"), policy.getPatterns());
+            assertEquals(Optional.of("Thread.stop"), policy.findViolation("Thread . stop();"));
+            assertEquals(Optional.empty(), policy.findViolation("System.exit(0);"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void bundledPolicyBlocksSystemExit() {
+        ExecutionPolicy policy = ExecutionPolicy.loadDefault(List.of());
+        assertTrue(policy.getPatterns().contains("System.exit"));
+        assertEquals(Optional.of("System.exit"), policy.findViolation("System.exit(0);"));
+    }
+
+    // Not a timing assertion (CI machines vary), prints the throughput for comparison between changes
+    @Test
+    void throughputOnLargeCell() {
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            switch (i % 4) {
+                case 0 -> cell.append("String s").append(i).append(" = \"System.exit(0) \\\" ProcessBuilder\"; // Runtime.exec\n");
+                case 1 -> cell.append("/* sun.misc.Unsafe */ int v").append(i).append(" = compute(").append(i).append(", 'x', \"y\");\n");
+                case 2 -> cell.append("list.add(new StringBuilder().append(\"").append(i).append("\").toString()); // note\n");
+                default -> cell.append("if (value").append(i).append(" > limit) { MySystem.exit(\"done\"); }\n");
+            }
+        }
+        String code = cell.toString();
+
+        for (int i = 0; i < 200; i++) POLICY.findViolation(code); // warm up
+        int rounds = 200;
+        long best = Long.MAX_VALUE;
+        Optional<String> result = Optional.empty();
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            result = POLICY.findViolation(code);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double ms = best / 1e6;
+
+        System.out.printf("ExecutionPolicy: %d KB, 10k-line cell in %.2f ms (%.0f MB/s)%n",
+                code.length() / 1024, ms, code.length() / 1e3 / ms);
+        assertEquals(Optional.empty(), result);
+    }
+}
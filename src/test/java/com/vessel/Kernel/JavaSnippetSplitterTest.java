@@ -0,0 +1,145 @@
+package com.vessel.Kernel;
+
+import jdk.jshell.JShell;
+import jdk.jshell.SourceCodeAnalysis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Correctness corpus and throughput check for JavaSnippetSplitter.
+ *
+ * Every case lists the snippets JShell needs. On top of that, each snippet the splitter produces
+ * must be exactly one complete unit for JShell's own source analysis: a snippet holding two
+ * declarations makes JShell silently drop the second one.
+ */
+class JavaSnippetSplitterTest {
+
+    // cell text -> expected snippets
+    private static final Object[][] CORPUS = {
+            // a '}' ends the declaration, whatever follows
+            {"class A {}\n<T> void f(T t) {}", List.of("class A {}", "<T> void f(T t) {}")},
+            {"void f() {}\n-1;", List.of("void f() {}", "-1;")},
+            {"@Deprecated void g() {}\n!true", List.of("@Deprecated void g() {}", "!true")},
+            {"enum E { A, B }\nE.A", List.of("enum E { A, B }", "E.A")},
+            {"record P(int x) {}\nnew P(1)", List.of("record P(int x) {}", "new P(1)")},
+            {"static <T> java.util.List<T> h() { return null; }\nh().size()",
+                    List.of("static <T> java.util.List<T> h() { return null; }", "h().size()")},
+            {"void k() { if (a) { b(); } }\nk();", List.of("void k() { if (a) { b(); } }", "k();")},
+            {"class B {}\n;\nclass C {}", List.of("class B {}", "class C {}")},
+
+            // statements that continue after a '}' or ';'
+            {"if (c) a(); else b();", List.of("if (c) a(); else b();")},
+            {"if (c) a(); else if (d) b(); else e();", List.of("if (c) a(); else if (d) b(); else e();")},
+            {"if (a) if (b) x(); else y(); else z();", List.of("if (a) if (b) x(); else y(); else z();")},
+            {"if (c) { a(); }\nelse { b(); }\nd();", List.of("if (c) { a(); }\nelse { b(); }", "d();")},
+            {"try { a(); } catch (Exception e) { b(); } finally { c(); }\nd();",
+                    List.of("try { a(); } catch (Exception e) { b(); } finally { c(); }", "d();")},
+            {"do { x(); } while (c);", List.of("do { x(); } while (c);")},
+            {"do x(); while (c);\nint y = 1;", List.of("do x(); while (c);", "int y = 1;")},
+            {"do { x(); } while (c); while (d) { y(); }", List.of("do { x(); } while (c);", "while (d) { y(); }")},
+            {"while (c) x();\ny();", List.of("while (c) x();", "y();")},
+            {"for (int i = 0; i < 3; i++) { x(); }\ny();", List.of("for (int i = 0; i < 3; i++) { x(); }", "y();")},
+            {"switch (k) { case 1 -> a(); default -> b(); }\nc();",
+                    List.of("switch (k) { case 1 -> a(); default -> b(); }", "c();")},
+            {"synchronized (lock) { x(); }\ny();", List.of("synchronized (lock) { x(); }", "y();")},
+            {"label: for (;;) { break label; }", List.of("label: for (;;) { break label; }")},
+
+            // braces inside expressions
+            {"new Thread() { public void run() {} }.start();", List.of("new Thread() { public void run() {} }.start();")},
+            {"var o = new Object() { int v = 1; }.v;", List.of("var o = new Object() { int v = 1; }.v;")},
+            {"int[] a = {1, 2};\nint b = a.length;", List.of("int[] a = {1, 2};", "int b = a.length;")},
+            {"int[][] m = new int[][] { {1}, {2} };", List.of("int[][] m = new int[][] { {1}, {2} };")},
+            {"Runnable r = () -> {\n  System.out.println(1);\n};\nr.run();",
+                    List.of("Runnable r = () -> {\n  System.out.println(1);\n};", "r.run();")},
+            {"interface I { void m(); }\nI i = () -> {};", List.of("interface I { void m(); }", "I i = () -> {};")},
+            {"int z = switch (k) { case 1 -> 2; default -> 3; };\nz",
+                    List.of("int z = switch (k) { case 1 -> 2; default -> 3; };", "z")},
+            {"list.forEach(x -> { y(x); });\nz();", List.of("list.forEach(x -> { y(x); });", "z();")},
+
+            // literals and comments don't split
+            {"String s = \"}\"; // ; }\nint x = 1;", List.of("String s = \"}\";", "// ; }\nint x = 1;")},
+            {"/* } ; */ int y = 2;", List.of("/* } ; */ int y = 2;")},
+            {"String t = \"\"\"\n  }\n  ;\n  \"\"\";\nt.length()", List.of("String t = \"\"\"\n  }\n  ;\n  \"\"\";", "t.length()")},
+            {"char c = '}';\nchar d = ';';", List.of("char c = '}';", "char d = ';';")},
+            {"// only a comment", List.of()},
+            {"x()", List.of("x()")},
+    };
+
+    private static JShell jshell;
+    private static SourceCodeAnalysis analysis;
+
+    @BeforeAll
+    static void startAnalysis() {
+        jshell = JShell.builder().executionEngine("local").build();
+        analysis = jshell.sourceCodeAnalysis();
+    }
+
+    @AfterAll
+    static void stopAnalysis() {
+        jshell.close();
+    }
+
+    @Test
+    void splitsCorpus() {
+        for (Object[] entry : CORPUS) {
+            String code = (String) entry[0];
+            assertEquals(entry[1], JavaSnippetSplitter.splitUncached(code), () -> "splitting:\n" + code);
+        }
+    }
+
+    @Test
+    void everySnippetIsOneCompleteUnitForJShell() {
+        for (Object[] entry : CORPUS) {
+            for (String snippet : JavaSnippetSplitter.splitUncached((String) entry[0])) {
+                SourceCodeAnalysis.CompletionInfo info = analysis.analyzeCompletion(snippet);
+                assertTrue(info.completeness().isComplete(), () -> "incomplete snippet:\n" + snippet);
+                assertTrue(info.remaining().isBlank(), () -> "more than one snippet:\n" + snippet);
+            }
+        }
+    }
+
+    @Test
+    void cachesByCellText() {
+        JavaSnippetSplitter splitter = new JavaSnippetSplitter();
+        List<String> first = splitter.split("int a = 1;\nint b = 2;");
+        assertSame(first, splitter.split("int a = 1;\nint b = 2;"));
+        assertEquals(1, splitter.getCacheMisses());
+        assertEquals(1, splitter.getCacheHits());
+    }
+
+    // Not a timing assertion (CI machines vary), prints the throughput for comparison between changes
+    @Test
+    void throughputOnLargeCell() {
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            switch (i % 5) {
+                case 0 -> cell.append("int v").append(i).append(" = ").append(i).append("; // ; }\n");
+                case 1 -> cell.append("String s").append(i).append(" = \"{ ; }\";\n");
+                case 2 -> cell.append("if (v").append(i - 2).append(" > 0) x(); else y();\n");
+                case 3 -> cell.append("void m").append(i).append("() { if (a) { b(); } else { c(); } }\n");
+                default -> cell.append("Runnable r").append(i).append(" = () -> { run(); };\n");
+            }
+        }
+        String code = cell.toString();
+
+        for (int i = 0; i < 20; i++) JavaSnippetSplitter.splitUncached(code); // warm up
+        int rounds = 50;
+        long start = System.nanoTime();
+        int snippets = 0;
+        for (int i = 0; i < rounds; i++) {
+            snippets = JavaSnippetSplitter.splitUncached(code).size();
+        }
+        double msPerSplit = (System.nanoTime() - start) / 1e6 / rounds;
+
+        System.out.printf("JavaSnippetSplitter: %d KB cell in %.2f ms (%.0f MB/s)%n",
+                code.length() / 1024, msPerSplit, code.length() / 1e3 / msPerSplit);
+        assertEquals(10_000, snippets);
+    }
+}